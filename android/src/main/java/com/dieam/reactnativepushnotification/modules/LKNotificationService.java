@@ -6,9 +6,7 @@ import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
 import android.os.IBinder;
-import android.os.Looper;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
@@ -16,10 +14,7 @@ import android.widget.Button;
 import com.dieam.reactnativepushnotification.R;
 import com.facebook.react.ReactApplication;
 import com.facebook.react.ReactInstanceManager;
-import com.facebook.react.bridge.Arguments;
-import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContext;
-import com.facebook.react.bridge.WritableMap;
 
 import androidx.annotation.Nullable;
 
@@ -48,35 +43,8 @@ public class LKNotificationService extends Service
             {
                 public void run ()
                 {
-                    Handler handler = new Handler (Looper.getMainLooper ());
-                    handler.post (new Runnable ()
-                    {
-                        public void run ()
-                        {
-                            // CONSTRUCT AND LOAD OUR NORMAL REACT JS CODE BUNDLE
-                            final ReactInstanceManager mReactInstanceManager = ((ReactApplication) getApplication ()).getReactNativeHost ().getReactInstanceManager ();
-                            ReactContext context = mReactInstanceManager.getCurrentReactContext ();
-                    
-                            // IF IT'S CONSTRUCTED, SEND A NOTIFICATION
-                            if (context != null) {
-                                sendToReactNative ((ReactApplicationContext) context, "stop_notification", notificationPayload);
-                            } else {
-                                // Otherwise wait for construction, then send the notification
-                                mReactInstanceManager.addReactInstanceEventListener (new ReactInstanceManager.ReactInstanceEventListener ()
-                                {
-                                    public void onReactContextInitialized (ReactContext context)
-                                    {
-                                        sendToReactNative ((ReactApplicationContext) context, "stop_notification", notificationPayload);
-                                        mReactInstanceManager.removeReactInstanceEventListener (this);
-                                    }
-                                });
-                                if (!mReactInstanceManager.hasStartedCreatingInitialContext ()) {
-                                    // Construct it in the background
-                                    mReactInstanceManager.createReactContextInBackground ();
-                                }
-                            }
-                        }
-                    });
+                    // QUEUED UNTIL THE REACT CONTEXT EXISTS
+                    sendToReactNative ("stop_notification", notificationPayload);
                     stopForeground (true);
                 }
             };
@@ -88,10 +56,10 @@ public class LKNotificationService extends Service
         return START_STICKY;
     }
     
-    private void sendToReactNative ( ReactApplicationContext context, String command, String notificationPayload )
+    private void sendToReactNative ( String command, String notificationPayload )
     {
-        RNPushNotificationJsDelivery jsDelivery = new RNPushNotificationJsDelivery (context);
-        WritableMap params = Arguments.createMap ();
+        RNPushNotificationJsDelivery jsDelivery = new RNPushNotificationJsDelivery (getApplication ());
+        Bundle params = new Bundle ();
         params.putString ( "command", command );
         params.putString ( "notificationPayload", notificationPayload );
         jsDelivery.sendEvent("onNewCommand", params);
@@ -29,6 +29,7 @@ import java.io.IOException;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import android.util.Log;
@@ -183,6 +184,26 @@ public class RNPushNotification extends ReactContextBaseJavaModule implements Ac
         mRNPushNotificationHelper.sendNotificationScheduled(bundle);
     }
 
+    @ReactMethod
+    /**
+     * Schedules every notification of the array at once, resolves with one {id, success, error}
+     * result per notification, in order.
+     */
+    public void scheduleLocalNotifications(ReadableArray details, Promise promise) {
+        List<Bundle> bundles = new ArrayList<>(details.size());
+
+        for (int i = 0; i < details.size(); i++) {
+            Bundle bundle = Arguments.toBundle(details.getMap(i));
+            // If notification ID is not provided by the user, generate one at random
+            if (bundle.getString("id") == null) {
+                bundle.putString("id", String.valueOf(mRandomNumberGenerator.nextInt()));
+            }
+            bundles.add(bundle);
+        }
+
+        promise.resolve(mRNPushNotificationHelper.sendNotificationsScheduled(bundles));
+    }
+
     @ReactMethod
     public void getInitialNotification(Promise promise) {
         WritableMap params = Arguments.createMap();
@@ -191,8 +212,7 @@ public class RNPushNotification extends ReactContextBaseJavaModule implements Ac
             Bundle bundle = this.getBundleFromIntent(activity.getIntent());
             if (bundle != null) {
                 bundle.putBoolean("foreground", false);
-                String bundleString = mJsDelivery.convertJSON(bundle);
-                params.putString("dataJSON", bundleString);
+                params = mJsDelivery.toWritableParams(bundle);
             }
         }
         promise.resolve(params);
@@ -233,6 +253,15 @@ public class RNPushNotification extends ReactContextBaseJavaModule implements Ac
         mRNPushNotificationHelper.cancelScheduledNotification(notification_id);
     }
 
+    @ReactMethod
+    /**
+     * Cancel every scheduled notification matching the channelId, tag, group, from and to
+     * criteria, and remove them from the notification centre. Resolves with the number cancelled.
+     */
+    public void cancelLocalNotificationsWhere(ReadableMap filter, Promise promise) {
+        promise.resolve(mRNPushNotificationHelper.cancelScheduledNotificationsWhere(RNPushNotificationFilter.fromMap(filter)));
+    }
+
     @ReactMethod
     /**
      * Clear notification from the notification centre.
@@ -266,6 +295,31 @@ public class RNPushNotification extends ReactContextBaseJavaModule implements Ac
         callback.invoke(mRNPushNotificationHelper.getScheduledLocalNotifications());
     }
 
+    @ReactMethod
+    /**
+     * Returns one page of scheduled notifications, earliest first, as {notifications, cursor}.
+     * Accepts cursor, pageSize and the channelId, tag, group, from and to filters
+     */
+    public void getScheduledLocalNotificationsPage(ReadableMap options, Promise promise) {
+        String cursor = options != null && options.hasKey("cursor") && !options.isNull("cursor") ? options.getString("cursor") : null;
+        int pageSize = options != null && options.hasKey("pageSize") ? options.getInt("pageSize") : 50;
+
+        if (pageSize <= 0) {
+            promise.reject("E_INVALID_PAGE_SIZE", "pageSize must be greater than 0");
+            return;
+        }
+
+        promise.resolve(mRNPushNotificationHelper.getScheduledLocalNotificationsPage(cursor, pageSize, RNPushNotificationFilter.fromMap(options)));
+    }
+
+    @ReactMethod
+    /**
+     * Returns the scheduled notifications firing in [from, to), earliest first
+     */
+    public void getScheduledLocalNotificationsInRange(double from, double to, Promise promise) {
+        promise.resolve(mRNPushNotificationHelper.getScheduledLocalNotificationsBetween((long) from, (long) to));
+    }
+
     @ReactMethod
     /**
      * Removes notifications from the Notification Center, whose id matches
@@ -275,6 +329,48 @@ public class RNPushNotification extends ReactContextBaseJavaModule implements Ac
       mRNPushNotificationHelper.clearDeliveredNotifications(identifiers);
     }
 
+    @ReactMethod
+    /**
+     * Batches the events sent to JS over up to latencyMs, 0 turns batching off
+     */
+    public void setEventBatchLatency(double latencyMs) {
+        RNPushNotificationEventQueue eventQueue = RNPushNotificationEventQueue.getInstance(getReactApplicationContext());
+
+        if (eventQueue != null) {
+            eventQueue.setBatchLatency((long) latencyMs);
+        }
+    }
+
+    @ReactMethod
+    /**
+     * Downloads pictures to the notification disk cache ahead of the notifications showing them,
+     * without decoding them, resolves with {prefetched, failed}
+     */
+    public void prefetchNotificationImages(ReadableArray urls, final Promise promise) {
+        List<String> list = new ArrayList<>();
+
+        for (int i = 0; i < urls.size(); i++) {
+            list.add(urls.getString(i));
+        }
+
+        RNPushNotificationPicturesAggregator.prefetch(getReactApplicationContext(), list, new RNPushNotificationPicturesAggregator.PrefetchCallback() {
+            public void done(int prefetched, int failed) {
+                WritableMap result = Arguments.createMap();
+                result.putInt("prefetched", prefetched);
+                result.putInt("failed", failed);
+                promise.resolve(result);
+            }
+        });
+    }
+
+    @ReactMethod
+    /**
+     * Returns the counters and timings collected by the notification pipeline
+     */
+    public void getNotificationMetrics(Promise promise) {
+        promise.resolve(RNPushNotificationMetrics.INSTANCE.toWritableMap());
+    }
+
     @ReactMethod
     /**
      * Unregister for all remote notifications received
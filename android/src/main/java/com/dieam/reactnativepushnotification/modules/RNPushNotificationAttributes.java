@@ -54,6 +54,55 @@ public class RNPushNotificationAttributes {
     private static final String ALLOW_WHILE_IDLE = "allowWhileIdle";
     private static final String IGNORE_IN_FOREGROUND = "ignoreInForeground";
     private static final String USER_INFO = "userInfo";
+    private static final String REPEAT_WEEKDAYS = "repeatWeekdays";
+    private static final String REPEAT_UNTIL = "repeatUntil";
+    private static final String REPEAT_COUNT = "repeatCount";
+    private static final String REPEAT_OCCURRENCE = "repeatOccurrence";
+
+    // Binary field tags, never reuse or renumber a tag once it has shipped
+    private static final int TAG_ID = 1;
+    private static final int TAG_MESSAGE = 2;
+    private static final int TAG_FIRE_DATE = 3;
+    private static final int TAG_TITLE = 4;
+    private static final int TAG_TICKER = 5;
+    private static final int TAG_SHOW_WHEN = 6;
+    private static final int TAG_AUTO_CANCEL = 7;
+    private static final int TAG_LARGE_ICON = 8;
+    private static final int TAG_LARGE_ICON_URL = 9;
+    private static final int TAG_SMALL_ICON = 10;
+    private static final int TAG_BIG_TEXT = 11;
+    private static final int TAG_SUB_TEXT = 12;
+    private static final int TAG_BIG_PICTURE_URL = 13;
+    private static final int TAG_SHORTCUT_ID = 14;
+    private static final int TAG_NUMBER = 15;
+    private static final int TAG_CHANNEL_ID = 16;
+    private static final int TAG_SOUND = 17;
+    private static final int TAG_COLOR = 18;
+    private static final int TAG_GROUP = 19;
+    private static final int TAG_GROUP_SUMMARY = 20;
+    private static final int TAG_MESSAGE_ID = 21;
+    private static final int TAG_PLAY_SOUND = 22;
+    private static final int TAG_VIBRATE = 23;
+    private static final int TAG_VIBRATION = 24;
+    private static final int TAG_ACTIONS = 25;
+    private static final int TAG_INVOKE_APP = 26;
+    private static final int TAG_TAG = 27;
+    private static final int TAG_REPEAT_TYPE = 28;
+    private static final int TAG_REPEAT_TIME = 29;
+    private static final int TAG_WHEN = 30;
+    private static final int TAG_USES_CHRONOMETER = 31;
+    private static final int TAG_TIMEOUT_AFTER = 32;
+    private static final int TAG_ONLY_ALERT_ONCE = 33;
+    private static final int TAG_ONGOING = 34;
+    private static final int TAG_REPLY_BUTTON_TEXT = 35;
+    private static final int TAG_REPLAY_PLACEHOLDER_TEXT = 36;
+    private static final int TAG_ALLOW_WHILE_IDLE = 37;
+    private static final int TAG_IGNORE_IN_FOREGROUND = 38;
+    private static final int TAG_USER_INFO = 39;
+    private static final int TAG_REPEAT_WEEKDAYS = 40;
+    private static final int TAG_REPEAT_UNTIL = 41;
+    private static final int TAG_REPEAT_COUNT = 42;
+    private static final int TAG_REPEAT_OCCURRENCE = 43;
 
     private final String id;
     private final String message;
@@ -94,6 +143,10 @@ public class RNPushNotificationAttributes {
     private final boolean allowWhileIdle;
     private final boolean ignoreInForeground;
     private final String userInfo;
+    private final double repeatWeekdays;
+    private final double repeatUntil;
+    private final double repeatCount;
+    private final double repeatOccurrence;
 
     public RNPushNotificationAttributes(Bundle bundle) {
         id = bundle.getString(ID);
@@ -135,6 +188,10 @@ public class RNPushNotificationAttributes {
         allowWhileIdle = bundle.getBoolean(ALLOW_WHILE_IDLE);
         ignoreInForeground = bundle.getBoolean(IGNORE_IN_FOREGROUND);
         userInfo = bundle.getString(USER_INFO);
+        repeatWeekdays = bundle.getDouble(REPEAT_WEEKDAYS);
+        repeatUntil = bundle.getDouble(REPEAT_UNTIL);
+        repeatCount = bundle.getDouble(REPEAT_COUNT);
+        repeatOccurrence = bundle.getDouble(REPEAT_OCCURRENCE);
     }
 
     private RNPushNotificationAttributes(JSONObject jsonObject) {
@@ -178,6 +235,10 @@ public class RNPushNotificationAttributes {
             allowWhileIdle = jsonObject.has(ALLOW_WHILE_IDLE) ? jsonObject.getBoolean(ALLOW_WHILE_IDLE) : false;
             ignoreInForeground = jsonObject.has(IGNORE_IN_FOREGROUND) ? jsonObject.getBoolean(IGNORE_IN_FOREGROUND) : false;
             userInfo = jsonObject.has(USER_INFO) ? jsonObject.getString(USER_INFO) : null;
+            repeatWeekdays = jsonObject.has(REPEAT_WEEKDAYS) ? jsonObject.getDouble(REPEAT_WEEKDAYS) : 0.0;
+            repeatUntil = jsonObject.has(REPEAT_UNTIL) ? jsonObject.getDouble(REPEAT_UNTIL) : 0.0;
+            repeatCount = jsonObject.has(REPEAT_COUNT) ? jsonObject.getDouble(REPEAT_COUNT) : 0.0;
+            repeatOccurrence = jsonObject.has(REPEAT_OCCURRENCE) ? jsonObject.getDouble(REPEAT_OCCURRENCE) : 0.0;
         } catch (JSONException e) {
             throw new IllegalStateException("Exception while initializing RNPushNotificationAttributes from JSON", e);
         }
@@ -190,6 +251,302 @@ public class RNPushNotificationAttributes {
         return new RNPushNotificationAttributes(jsonObject);
     }
 
+    private RNPushNotificationAttributes(RNPushNotificationBinaryFormat.Reader reader) {
+        // Same defaults as the JSON constructor, omitted fields decode to them
+        String idValue = null;
+        String messageValue = null;
+        double fireDateValue = 0.0;
+        String titleValue = null;
+        String tickerValue = null;
+        boolean showWhenValue = true;
+        boolean autoCancelValue = true;
+        String largeIconValue = null;
+        String largeIconUrlValue = null;
+        String smallIconValue = null;
+        String bigTextValue = null;
+        String subTextValue = null;
+        String bigPictureUrlValue = null;
+        String shortcutIdValue = null;
+        String numberValue = null;
+        String channelIdValue = null;
+        String soundValue = null;
+        String colorValue = null;
+        String groupValue = null;
+        boolean groupSummaryValue = false;
+        String messageIdValue = null;
+        boolean playSoundValue = true;
+        boolean vibrateValue = true;
+        double vibrationValue = 1000;
+        String actionsValue = null;
+        boolean invokeAppValue = true;
+        String tagValue = null;
+        String repeatTypeValue = null;
+        double repeatTimeValue = 0.0;
+        double whenValue = -1;
+        boolean usesChronometerValue = false;
+        double timeoutAfterValue = -1;
+        boolean onlyAlertOnceValue = false;
+        boolean ongoingValue = false;
+        String replyButtonTextValue = null;
+        String replyPlaceholderTextValue = null;
+        boolean allowWhileIdleValue = false;
+        boolean ignoreInForegroundValue = false;
+        String userInfoValue = null;
+        double repeatWeekdaysValue = 0.0;
+        double repeatUntilValue = 0.0;
+        double repeatCountValue = 0.0;
+        double repeatOccurrenceValue = 0.0;
+
+        for (int tag = reader.nextTag(); tag != 0; tag = reader.nextTag()) {
+            switch (tag) {
+                case TAG_ID:
+                    idValue = reader.readString();
+                    break;
+                case TAG_MESSAGE:
+                    messageValue = reader.readString();
+                    break;
+                case TAG_FIRE_DATE:
+                    fireDateValue = reader.readDouble();
+                    break;
+                case TAG_TITLE:
+                    titleValue = reader.readString();
+                    break;
+                case TAG_TICKER:
+                    tickerValue = reader.readString();
+                    break;
+                case TAG_SHOW_WHEN:
+                    showWhenValue = reader.readBoolean();
+                    break;
+                case TAG_AUTO_CANCEL:
+                    autoCancelValue = reader.readBoolean();
+                    break;
+                case TAG_LARGE_ICON:
+                    largeIconValue = reader.readString();
+                    break;
+                case TAG_LARGE_ICON_URL:
+                    largeIconUrlValue = reader.readString();
+                    break;
+                case TAG_SMALL_ICON:
+                    smallIconValue = reader.readString();
+                    break;
+                case TAG_BIG_TEXT:
+                    bigTextValue = reader.readString();
+                    break;
+                case TAG_SUB_TEXT:
+                    subTextValue = reader.readString();
+                    break;
+                case TAG_BIG_PICTURE_URL:
+                    bigPictureUrlValue = reader.readString();
+                    break;
+                case TAG_SHORTCUT_ID:
+                    shortcutIdValue = reader.readString();
+                    break;
+                case TAG_NUMBER:
+                    numberValue = reader.readString();
+                    break;
+                case TAG_CHANNEL_ID:
+                    channelIdValue = reader.readString();
+                    break;
+                case TAG_SOUND:
+                    soundValue = reader.readString();
+                    break;
+                case TAG_COLOR:
+                    colorValue = reader.readString();
+                    break;
+                case TAG_GROUP:
+                    groupValue = reader.readString();
+                    break;
+                case TAG_GROUP_SUMMARY:
+                    groupSummaryValue = reader.readBoolean();
+                    break;
+                case TAG_MESSAGE_ID:
+                    messageIdValue = reader.readString();
+                    break;
+                case TAG_PLAY_SOUND:
+                    playSoundValue = reader.readBoolean();
+                    break;
+                case TAG_VIBRATE:
+                    vibrateValue = reader.readBoolean();
+                    break;
+                case TAG_VIBRATION:
+                    vibrationValue = reader.readDouble();
+                    break;
+                case TAG_ACTIONS:
+                    actionsValue = reader.readString();
+                    break;
+                case TAG_INVOKE_APP:
+                    invokeAppValue = reader.readBoolean();
+                    break;
+                case TAG_TAG:
+                    tagValue = reader.readString();
+                    break;
+                case TAG_REPEAT_TYPE:
+                    repeatTypeValue = reader.readString();
+                    break;
+                case TAG_REPEAT_TIME:
+                    repeatTimeValue = reader.readDouble();
+                    break;
+                case TAG_WHEN:
+                    whenValue = reader.readDouble();
+                    break;
+                case TAG_USES_CHRONOMETER:
+                    usesChronometerValue = reader.readBoolean();
+                    break;
+                case TAG_TIMEOUT_AFTER:
+                    timeoutAfterValue = reader.readDouble();
+                    break;
+                case TAG_ONLY_ALERT_ONCE:
+                    onlyAlertOnceValue = reader.readBoolean();
+                    break;
+                case TAG_ONGOING:
+                    ongoingValue = reader.readBoolean();
+                    break;
+                case TAG_REPLY_BUTTON_TEXT:
+                    replyButtonTextValue = reader.readString();
+                    break;
+                case TAG_REPLAY_PLACEHOLDER_TEXT:
+                    replyPlaceholderTextValue = reader.readString();
+                    break;
+                case TAG_ALLOW_WHILE_IDLE:
+                    allowWhileIdleValue = reader.readBoolean();
+                    break;
+                case TAG_IGNORE_IN_FOREGROUND:
+                    ignoreInForegroundValue = reader.readBoolean();
+                    break;
+                case TAG_USER_INFO:
+                    userInfoValue = reader.readString();
+                    break;
+                case TAG_REPEAT_WEEKDAYS:
+                    repeatWeekdaysValue = reader.readDouble();
+                    break;
+                case TAG_REPEAT_UNTIL:
+                    repeatUntilValue = reader.readDouble();
+                    break;
+                case TAG_REPEAT_COUNT:
+                    repeatCountValue = reader.readDouble();
+                    break;
+                case TAG_REPEAT_OCCURRENCE:
+                    repeatOccurrenceValue = reader.readDouble();
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+
+        this.id = idValue;
+        this.message = messageValue;
+        this.fireDate = fireDateValue;
+        this.title = titleValue;
+        this.ticker = tickerValue;
+        this.showWhen = showWhenValue;
+        this.autoCancel = autoCancelValue;
+        this.largeIcon = largeIconValue;
+        this.largeIconUrl = largeIconUrlValue;
+        this.smallIcon = smallIconValue;
+        this.bigText = bigTextValue;
+        this.subText = subTextValue;
+        this.bigPictureUrl = bigPictureUrlValue;
+        this.shortcutId = shortcutIdValue;
+        this.number = numberValue;
+        this.channelId = channelIdValue;
+        this.sound = soundValue;
+        this.color = colorValue;
+        this.group = groupValue;
+        this.groupSummary = groupSummaryValue;
+        this.messageId = messageIdValue;
+        this.playSound = playSoundValue;
+        this.vibrate = vibrateValue;
+        this.vibration = vibrationValue;
+        this.actions = actionsValue;
+        this.invokeApp = invokeAppValue;
+        this.tag = tagValue;
+        this.repeatType = repeatTypeValue;
+        this.repeatTime = repeatTimeValue;
+        this.when = whenValue;
+        this.usesChronometer = usesChronometerValue;
+        this.timeoutAfter = timeoutAfterValue;
+        this.onlyAlertOnce = onlyAlertOnceValue;
+        this.ongoing = ongoingValue;
+        this.reply_button_text = replyButtonTextValue;
+        this.reply_placeholder_text = replyPlaceholderTextValue;
+        this.allowWhileIdle = allowWhileIdleValue;
+        this.ignoreInForeground = ignoreInForegroundValue;
+        this.userInfo = userInfoValue;
+        this.repeatWeekdays = repeatWeekdaysValue;
+        this.repeatUntil = repeatUntilValue;
+        this.repeatCount = repeatCountValue;
+        this.repeatOccurrence = repeatOccurrenceValue;
+    }
+
+    /**
+     * Decodes a payload from the scheduled store. Entries written before the binary format
+     * was introduced are JSON and are decoded as such.
+     */
+    @NonNull
+    public static RNPushNotificationAttributes fromBytes(byte[] payload) throws JSONException {
+        if (RNPushNotificationBinaryFormat.isBinary(payload)) {
+            return new RNPushNotificationAttributes(new RNPushNotificationBinaryFormat.Reader(payload));
+        }
+
+        return fromJson(new String(payload, RNPushNotificationStore.UTF_8));
+    }
+
+    /**
+     * Reads only the channel id, tag and group of a stored payload, in that order. Binary
+     * payloads skip every other field without decoding it.
+     */
+    static String[] peekChannelTagAndGroup(byte[] payload) throws JSONException {
+        String[] result = new String[3];
+
+        if (!RNPushNotificationBinaryFormat.isBinary(payload)) {
+            RNPushNotificationAttributes attributes = fromBytes(payload);
+            result[0] = attributes.channelId;
+            result[1] = attributes.tag;
+            result[2] = attributes.group;
+            return result;
+        }
+
+        RNPushNotificationBinaryFormat.Reader reader = new RNPushNotificationBinaryFormat.Reader(payload);
+
+        for (int tag = reader.nextTag(); tag != 0; tag = reader.nextTag()) {
+            switch (tag) {
+                case TAG_CHANNEL_ID:
+                    result[0] = reader.readString();
+                    break;
+                case TAG_TAG:
+                    result[1] = reader.readString();
+                    break;
+                case TAG_GROUP:
+                    result[2] = reader.readString();
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads only allowWhileIdle from a stored payload, binary payloads stop at that field.
+     */
+    static boolean peekAllowWhileIdle(byte[] payload) throws JSONException {
+        if (!RNPushNotificationBinaryFormat.isBinary(payload)) {
+            return fromBytes(payload).allowWhileIdle;
+        }
+
+        RNPushNotificationBinaryFormat.Reader reader = new RNPushNotificationBinaryFormat.Reader(payload);
+
+        for (int tag = reader.nextTag(); tag != 0; tag = reader.nextTag()) {
+            if (tag == TAG_ALLOW_WHILE_IDLE) {
+                return reader.readBoolean();
+            }
+            reader.skip();
+        }
+
+        return false;
+    }
+
     public Bundle toBundle() {
         Bundle bundle = new Bundle();
         bundle.putString(ID, id);
@@ -231,9 +588,64 @@ public class RNPushNotificationAttributes {
         bundle.putBoolean(ALLOW_WHILE_IDLE, allowWhileIdle);
         bundle.putBoolean(IGNORE_IN_FOREGROUND, ignoreInForeground);
         bundle.putString(USER_INFO, userInfo);
+        bundle.putDouble(REPEAT_WEEKDAYS, repeatWeekdays);
+        bundle.putDouble(REPEAT_UNTIL, repeatUntil);
+        bundle.putDouble(REPEAT_COUNT, repeatCount);
+        bundle.putDouble(REPEAT_OCCURRENCE, repeatOccurrence);
         return bundle;
     }
 
+    /**
+     * Encodes these attributes with the compact binary format used by the scheduled store.
+     */
+    public byte[] toBytes() {
+        RNPushNotificationBinaryFormat.Writer writer = new RNPushNotificationBinaryFormat.Writer();
+        writer.putString(TAG_ID, id);
+        writer.putString(TAG_MESSAGE, message);
+        writer.putDouble(TAG_FIRE_DATE, fireDate, 0.0);
+        writer.putString(TAG_TITLE, title);
+        writer.putString(TAG_TICKER, ticker);
+        writer.putBoolean(TAG_SHOW_WHEN, showWhen, true);
+        writer.putBoolean(TAG_AUTO_CANCEL, autoCancel, true);
+        writer.putString(TAG_LARGE_ICON, largeIcon);
+        writer.putString(TAG_LARGE_ICON_URL, largeIconUrl);
+        writer.putString(TAG_SMALL_ICON, smallIcon);
+        writer.putString(TAG_BIG_TEXT, bigText);
+        writer.putString(TAG_SUB_TEXT, subText);
+        writer.putString(TAG_BIG_PICTURE_URL, bigPictureUrl);
+        writer.putString(TAG_SHORTCUT_ID, shortcutId);
+        writer.putString(TAG_NUMBER, number);
+        writer.putString(TAG_CHANNEL_ID, channelId);
+        writer.putString(TAG_SOUND, sound);
+        writer.putString(TAG_COLOR, color);
+        writer.putString(TAG_GROUP, group);
+        writer.putBoolean(TAG_GROUP_SUMMARY, groupSummary, false);
+        writer.putString(TAG_MESSAGE_ID, messageId);
+        writer.putBoolean(TAG_PLAY_SOUND, playSound, true);
+        writer.putBoolean(TAG_VIBRATE, vibrate, true);
+        writer.putDouble(TAG_VIBRATION, vibration, 1000);
+        writer.putString(TAG_ACTIONS, actions);
+        writer.putBoolean(TAG_INVOKE_APP, invokeApp, true);
+        writer.putString(TAG_TAG, tag);
+        writer.putString(TAG_REPEAT_TYPE, repeatType);
+        writer.putDouble(TAG_REPEAT_TIME, repeatTime, 0.0);
+        writer.putDouble(TAG_WHEN, when, -1);
+        writer.putBoolean(TAG_USES_CHRONOMETER, usesChronometer, false);
+        writer.putDouble(TAG_TIMEOUT_AFTER, timeoutAfter, -1);
+        writer.putBoolean(TAG_ONLY_ALERT_ONCE, onlyAlertOnce, false);
+        writer.putBoolean(TAG_ONGOING, ongoing, false);
+        writer.putString(TAG_REPLY_BUTTON_TEXT, reply_button_text);
+        writer.putString(TAG_REPLAY_PLACEHOLDER_TEXT, reply_placeholder_text);
+        writer.putBoolean(TAG_ALLOW_WHILE_IDLE, allowWhileIdle, false);
+        writer.putBoolean(TAG_IGNORE_IN_FOREGROUND, ignoreInForeground, false);
+        writer.putString(TAG_USER_INFO, userInfo);
+        writer.putDouble(TAG_REPEAT_WEEKDAYS, repeatWeekdays, 0.0);
+        writer.putDouble(TAG_REPEAT_UNTIL, repeatUntil, 0.0);
+        writer.putDouble(TAG_REPEAT_COUNT, repeatCount, 0.0);
+        writer.putDouble(TAG_REPEAT_OCCURRENCE, repeatOccurrence, 0.0);
+        return writer.toByteArray();
+    }
+
     public JSONObject toJson() {
         JSONObject jsonObject = new JSONObject();
         try {
@@ -276,6 +688,10 @@ public class RNPushNotificationAttributes {
             jsonObject.put(ALLOW_WHILE_IDLE, allowWhileIdle);
             jsonObject.put(IGNORE_IN_FOREGROUND, ignoreInForeground);
             jsonObject.put(USER_INFO, userInfo);
+            jsonObject.put(REPEAT_WEEKDAYS, repeatWeekdays);
+            jsonObject.put(REPEAT_UNTIL, repeatUntil);
+            jsonObject.put(REPEAT_COUNT, repeatCount);
+            jsonObject.put(REPEAT_OCCURRENCE, repeatOccurrence);
         } catch (JSONException e) {
             Log.e(LOG_TAG, "Exception while converting RNPushNotificationAttributes to " +
                     "JSON. Returning an empty object", e);
@@ -327,6 +743,10 @@ public class RNPushNotificationAttributes {
                 ", allowWhileIdle=" + allowWhileIdle +
                 ", ignoreInForeground=" + ignoreInForeground +
                 ", userInfo=" + userInfo +
+                ", repeatWeekdays=" + repeatWeekdays +
+                ", repeatUntil=" + repeatUntil +
+                ", repeatCount=" + repeatCount +
+                ", repeatOccurrence=" + repeatOccurrence +
                 '}';
     }
 
@@ -361,4 +781,8 @@ public class RNPushNotificationAttributes {
     public double getFireDate() {
         return fireDate;
     }
+
+    public boolean getAllowWhileIdle() {
+        return allowWhileIdle;
+    }
 }
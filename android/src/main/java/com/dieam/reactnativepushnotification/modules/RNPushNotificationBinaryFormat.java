@@ -0,0 +1,262 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact tagged binary encoding used to persist notification attributes.
+ *
+ * Layout: [byte MAGIC][byte VERSION][varint stringCount][strings...][fields...][varint 0].
+ * Each string is a varint length followed by its UTF-8 bytes, so repeated values (a title that
+ * is also the ticker, the same URL for two images) are only stored once. Each field is a varint
+ * key of (tag << 3 | type) followed by its value. Fields equal to their default are omitted and
+ * unknown tags are skipped, so tags can be added without bumping the version.
+ */
+class RNPushNotificationBinaryFormat {
+    // Never a valid first byte of a JSON document, which is how legacy entries are told apart
+    static final byte MAGIC = (byte) 0xB7;
+    static final byte VERSION = 1;
+
+    private static final int TYPE_VARINT = 0;
+    private static final int TYPE_DOUBLE = 1;
+    private static final int TYPE_STRING = 2;
+    private static final int TYPE_INTEGRAL = 3;
+
+    static boolean isBinary(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MAGIC;
+    }
+
+    static final class Writer {
+        private final Map<String, Integer> stringIndex = new HashMap<>();
+        private byte[] strings = new byte[256];
+        private int stringsSize;
+        private byte[] fields = new byte[128];
+        private int fieldsSize;
+
+        void putString(int tag, String value) {
+            if (value == null) {
+                return;
+            }
+
+            Integer index = stringIndex.get(value);
+
+            if (index == null) {
+                index = stringIndex.size();
+                stringIndex.put(value, index);
+
+                byte[] bytes = value.getBytes(RNPushNotificationStore.UTF_8);
+                writeVarint(bytes.length, true);
+                strings = ensureCapacity(strings, stringsSize + bytes.length);
+                System.arraycopy(bytes, 0, strings, stringsSize, bytes.length);
+                stringsSize += bytes.length;
+            }
+
+            writeKey(tag, TYPE_STRING);
+            writeVarint(index, false);
+        }
+
+        void putBoolean(int tag, boolean value, boolean defaultValue) {
+            if (value != defaultValue) {
+                writeKey(tag, TYPE_VARINT);
+                writeVarint(value ? 1 : 0, false);
+            }
+        }
+
+        void putDouble(int tag, double value, double defaultValue) {
+            if (Double.compare(value, defaultValue) == 0) {
+                return;
+            }
+
+            long integral = (long) value;
+
+            // Dates and durations are whole milliseconds, which fit in far fewer bytes as varints
+            if (integral == value && Double.compare(value, -0.0) != 0) {
+                writeKey(tag, TYPE_INTEGRAL);
+                writeVarint((integral << 1) ^ (integral >> 63), false);
+            } else {
+                writeKey(tag, TYPE_DOUBLE);
+                long bits = Double.doubleToRawLongBits(value);
+                fields = ensureCapacity(fields, fieldsSize + 8);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    fields[fieldsSize++] = (byte) (bits >>> shift);
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            byte[] count = new byte[5];
+            int countSize = encodeVarint(stringIndex.size(), count, 0);
+
+            byte[] out = new byte[2 + countSize + stringsSize + fieldsSize + 1];
+            int pos = 0;
+            out[pos++] = MAGIC;
+            out[pos++] = VERSION;
+            System.arraycopy(count, 0, out, pos, countSize);
+            pos += countSize;
+            System.arraycopy(strings, 0, out, pos, stringsSize);
+            pos += stringsSize;
+            System.arraycopy(fields, 0, out, pos, fieldsSize);
+            pos += fieldsSize;
+            out[pos] = 0;
+
+            return out;
+        }
+
+        private void writeKey(int tag, int type) {
+            writeVarint(((long) tag << 3) | type, false);
+        }
+
+        private void writeVarint(long value, boolean toStrings) {
+            if (toStrings) {
+                strings = ensureCapacity(strings, stringsSize + 10);
+                stringsSize = encodeVarint(value, strings, stringsSize);
+            } else {
+                fields = ensureCapacity(fields, fieldsSize + 10);
+                fieldsSize = encodeVarint(value, fields, fieldsSize);
+            }
+        }
+
+        private static int encodeVarint(long value, byte[] buffer, int pos) {
+            while ((value & ~0x7FL) != 0) {
+                buffer[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[pos++] = (byte) value;
+            return pos;
+        }
+
+        private static byte[] ensureCapacity(byte[] buffer, int required) {
+            if (buffer.length >= required) {
+                return buffer;
+            }
+            return Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+
+    static final class Reader {
+        private final byte[] data;
+        private final int[] stringOffsets;
+        private final int[] stringSizes;
+        private final String[] decodedStrings;
+        private int pos;
+        private int type;
+
+        Reader(byte[] data) {
+            if (!isBinary(data) || data.length < 3) {
+                throw new IllegalArgumentException("Not a binary encoded notification");
+            }
+            if (data[1] > VERSION) {
+                throw new IllegalArgumentException("Unsupported notification encoding version " + data[1]);
+            }
+
+            this.data = data;
+            this.pos = 2;
+
+            int count = (int) readVarint();
+            if (count < 0 || count > data.length) {
+                throw new IllegalArgumentException("Malformed notification string table");
+            }
+
+            stringOffsets = new int[count];
+            stringSizes = new int[count];
+            decodedStrings = new String[count];
+
+            for (int i = 0; i < count; i++) {
+                int size = (int) readVarint();
+                if (size < 0 || pos + size > data.length) {
+                    throw new IllegalArgumentException("Malformed notification string table");
+                }
+                stringOffsets[i] = pos;
+                stringSizes[i] = size;
+                pos += size;
+            }
+        }
+
+        /**
+         * Advances to the next field and returns its tag, or 0 once all fields have been read.
+         */
+        int nextTag() {
+            long key = readVarint();
+            type = (int) (key & 0x7);
+            return (int) (key >>> 3);
+        }
+
+        String readString() {
+            if (type != TYPE_STRING) {
+                throw new IllegalArgumentException("Expected a string field");
+            }
+
+            int index = (int) readVarint();
+            if (index < 0 || index >= decodedStrings.length) {
+                throw new IllegalArgumentException("Malformed notification string reference");
+            }
+
+            // Strings are only decoded when a field actually asks for them
+            if (decodedStrings[index] == null) {
+                decodedStrings[index] = new String(data, stringOffsets[index], stringSizes[index], RNPushNotificationStore.UTF_8);
+            }
+            return decodedStrings[index];
+        }
+
+        boolean readBoolean() {
+            if (type != TYPE_VARINT) {
+                throw new IllegalArgumentException("Expected a boolean field");
+            }
+            return readVarint() != 0;
+        }
+
+        double readDouble() {
+            if (type == TYPE_INTEGRAL) {
+                long zigzag = readVarint();
+                return (double) ((zigzag >>> 1) ^ -(zigzag & 1));
+            }
+            if (type != TYPE_DOUBLE) {
+                throw new IllegalArgumentException("Expected a number field");
+            }
+            if (pos + 8 > data.length) {
+                throw new IllegalArgumentException("Truncated notification field");
+            }
+
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                bits = (bits << 8) | (data[pos++] & 0xFF);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        void skip() {
+            switch (type) {
+                case TYPE_VARINT:
+                case TYPE_STRING:
+                case TYPE_INTEGRAL:
+                    readVarint();
+                    break;
+                case TYPE_DOUBLE:
+                    pos += 8;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown notification field type " + type);
+            }
+        }
+
+        private long readVarint() {
+            long value = 0;
+
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= data.length) {
+                    throw new IllegalArgumentException("Truncated notification data");
+                }
+
+                byte b = data[pos++];
+                value |= (long) (b & 0x7F) << shift;
+
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+
+            throw new IllegalArgumentException("Malformed notification varint");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LruCache;
+
+/**
+ * Process-wide cache of the bitmaps decoded from resources for notifications, such as the
+ * launcher icon used as large icon, so they are decoded once instead of for every notification.
+ *
+ * Bitmaps are keyed by resource id and density and the cache is bounded in bytes. It is
+ * trimmed when the system is low on memory and emptied once the app is in the background.
+ */
+class RNPushNotificationBitmapCache implements ComponentCallbacks2 {
+    private static final int MAX_BYTES = 4 * 1024 * 1024;
+
+    private static RNPushNotificationBitmapCache sInstance;
+
+    private final LruCache<String, Bitmap> cache;
+
+    static synchronized RNPushNotificationBitmapCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RNPushNotificationBitmapCache();
+            context.getApplicationContext().registerComponentCallbacks(sInstance);
+        }
+        return sInstance;
+    }
+
+    private RNPushNotificationBitmapCache() {
+        int maxBytes = (int) Math.min(MAX_BYTES, Runtime.getRuntime().maxMemory() / 32);
+
+        cache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * Returns the decoded resource, or null if it isn't a bitmap. The bitmap is shared, it must
+     * not be modified or recycled.
+     */
+    Bitmap decodeResource(Resources res, int resId) {
+        String key = resId + "@" + res.getDisplayMetrics().densityDpi;
+        Bitmap bitmap = cache.get(key);
+
+        if (bitmap != null) {
+            RNPushNotificationMetrics.INSTANCE.increment("resourceBitmapCacheHits");
+            return bitmap;
+        }
+
+        RNPushNotificationMetrics.INSTANCE.increment("resourceBitmapCacheMisses");
+        bitmap = BitmapFactory.decodeResource(res, resId);
+
+        if (bitmap != null) {
+            cache.put(key, bitmap);
+        }
+
+        return bitmap;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            cache.evictAll();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        cache.evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+}
@@ -4,47 +4,202 @@ import android.app.Application;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.text.TextUtils;
 import android.util.Log;
 
-import java.util.Set;
+import com.dieam.reactnativepushnotification.R;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
 
 /**
  * Set alarms for scheduled notification after system reboot.
+ *
+ * The work runs off the main thread through {@link #goAsync()}. Notifications that came due
+ * while the device was off are read and removed from the store a page at a time and, when
+ * there is more than one, shown as a single summary instead of one notification each. The
+ * summary has missedSummary set, passed to JS when it is opened.
  */
 public class RNPushNotificationBootEventReceiver extends BroadcastReceiver {
+    static final String MISSED_SUMMARY_ID = "2147483646";
+
+    private static final int BATCH_SIZE = 50;
+    private static final int SUMMARY_MAX_LINES = 5;
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
 
     @Override
-    public void onReceive(Context context, Intent intent) {
+    public void onReceive(final Context context, Intent intent) {
         Log.i(LOG_TAG, "RNPushNotificationBootEventReceiver loading scheduled notifications");
 
-        SharedPreferences sharedPreferences = context.getSharedPreferences(RNPushNotificationHelper.PREFERENCES_KEY, Context.MODE_PRIVATE);
-        Set<String> ids = sharedPreferences.getAll().keySet();
+        final PendingResult pendingResult = goAsync();
+
+        sExecutor.execute(new Runnable() {
+            public void run() {
+                long start = SystemClock.elapsedRealtime();
+
+                try {
+                    restore(context);
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "Problem with boot receiver restoring notifications", e);
+                } finally {
+                    long duration = SystemClock.elapsedRealtime() - start;
+
+                    RNPushNotificationMetrics.INSTANCE.record("bootRestore", duration);
+                    Log.i(LOG_TAG, "RNPushNotificationBootEventReceiver: Restored in " + duration + "ms");
+
+                    pendingResult.finish();
+                }
+            }
+        });
+    }
+
+    private void restore(Context context) {
+        RNPushNotificationStore store = RNPushNotificationStore.getInstance(context);
+        RNPushNotificationScheduler scheduler = RNPushNotificationScheduler.getInstance(context);
 
         Application applicationContext = (Application) context.getApplicationContext();
         RNPushNotificationHelper rnPushNotificationHelper = new RNPushNotificationHelper(applicationContext);
 
-        for (String id : ids) {
-            try {
-                String notificationAttributesJson = sharedPreferences.getString(id, null);
-                if (notificationAttributesJson != null) {
-                    RNPushNotificationAttributes notificationAttributes = RNPushNotificationAttributes.fromJson(notificationAttributesJson);
-
-                    if (notificationAttributes.getFireDate() < System.currentTimeMillis()) {
-                        Log.i(LOG_TAG, "RNPushNotificationBootEventReceiver: Showing notification for " +
-                                notificationAttributes.getId());
-                        rnPushNotificationHelper.sendToNotificationCentre(notificationAttributes.toBundle());
-                    } else {
-                        Log.i(LOG_TAG, "RNPushNotificationBootEventReceiver: Scheduling notification for " +
-                                notificationAttributes.getId());
-                        rnPushNotificationHelper.sendNotificationScheduledCore(notificationAttributes.toBundle());
-                    }
-                }
-            } catch (Exception e) {
-                Log.e(LOG_TAG, "Problem with boot receiver loading notification " + id, e);
+        // Only the notifications that came due while the device was off are read, a page at a
+        // time, the rest are covered by the single scheduler alarm armed below
+        long now = System.currentTimeMillis();
+        long from = Long.MIN_VALUE;
+        String afterId = null;
+        List<String> page;
+
+        // Held back until a second one comes up, a single missed notification is shown as is
+        Bundle single = null;
+        int pastDue = 0;
+        Summary summary = new Summary();
+
+        do {
+            page = store.idsAfter(from, afterId, now + 1, BATCH_SIZE);
+
+            List<String> ids = new ArrayList<>(page.size());
+            List<Bundle> bundles = new ArrayList<>(page.size());
+
+            for (String id : page) {
+                from = store.getFireDate(id);
+                afterId = id;
+
+                // Already being posted by a drain
+                if (!scheduler.claim(id)) {
+                    continue;
+                }
+
+                pastDue++;
+                Bundle bundle = load(store, id);
+
+                if (bundle == null) {
+                    // Dropped instead of failing again on every boot
+                    ids.add(id);
+                    continue;
+                }
+
+                if (single == null && summary.shown == 0) {
+                    single = bundle;
+                    continue;
+                }
+
+                if (single != null) {
+                    summary.add(single);
+                    bundles.add(single);
+                    ids.add(single.getString("id"));
+                    single = null;
+                }
+
+                summary.add(bundle);
+                bundles.add(bundle);
+                ids.add(id);
+            }
+
+            if (!ids.isEmpty()) {
+                rnPushNotificationHelper.completeScheduledNotifications(ids, bundles);
+            }
+        } while (page.size() == BATCH_SIZE);
+
+        RNPushNotificationMetrics.INSTANCE.increment("bootRestorePastDue", pastDue);
+
+        if (single != null) {
+            Log.i(LOG_TAG, "RNPushNotificationBootEventReceiver: Showing notification for " + single.getString("id"));
+            rnPushNotificationHelper.sendToNotificationCentre(single);
+        } else if (summary.shown > 0) {
+            Log.i(LOG_TAG, "RNPushNotificationBootEventReceiver: Summarized " + summary.shown + " missed notifications");
+
+            Bundle bundle = new Bundle();
+            bundle.putString("id", MISSED_SUMMARY_ID);
+            bundle.putString("title", context.getResources().getQuantityString(R.plurals.rn_push_notification_missed_notifications, summary.shown, summary.shown));
+            if (summary.channelId != null) {
+                bundle.putString("channelId", summary.channelId);
+            }
+            bundle.putString("message", summary.lastMessage != null ? summary.lastMessage : "");
+            bundle.putString("bigText", summary.lines.toString());
+            bundle.putBoolean("missedSummary", true);
+
+            rnPushNotificationHelper.sendToNotificationCentre(bundle);
+        }
+
+        Log.i(LOG_TAG, "RNPushNotificationBootEventReceiver: Scheduling " + store.size() + " notifications");
+        scheduler.arm();
+    }
+
+    /**
+     * Summary of the missed notifications, built a page at a time.
+     */
+    private static class Summary {
+        int shown;
+        String lastMessage;
+        // Shared by all the summarized notifications, null for the default channel otherwise
+        String channelId;
+        final StringBuilder lines = new StringBuilder();
+
+        void add(Bundle bundle) {
+            String message = bundle.getString("message");
+            String channel = bundle.getString("channelId");
+
+            if (shown == 0) {
+                channelId = channel;
+            } else if (channelId != null && !channelId.equals(channel)) {
+                channelId = null;
             }
+
+            if (shown < SUMMARY_MAX_LINES) {
+                String title = bundle.getString("title");
+
+                if (lines.length() > 0) {
+                    lines.append("<br>");
+                }
+                if (title != null) {
+                    lines.append("<b>").append(TextUtils.htmlEncode(title)).append("</b> ");
+                }
+                if (message != null) {
+                    lines.append(TextUtils.htmlEncode(message));
+                }
+            }
+
+            shown++;
+            lastMessage = message;
         }
     }
+
+    private Bundle load(RNPushNotificationStore store, String id) {
+        try {
+            byte[] payload = store.get(id);
+
+            if (payload != null) {
+                return RNPushNotificationAttributes.fromBytes(payload).toBundle();
+            }
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "Problem with boot receiver loading notification " + id, e);
+        }
+
+        return null;
+    }
 }
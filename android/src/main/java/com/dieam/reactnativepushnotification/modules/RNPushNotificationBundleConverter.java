@@ -0,0 +1,127 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.os.Bundle;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.List;
+
+/**
+ * Converts Bundles straight to WritableMaps, so they can be sent to JS without going through
+ * a JSON string.
+ *
+ * Unlike {@link Arguments#fromBundle}, values it doesn't know about, such as a Uri or any
+ * other Parcelable, are sent as their string representation instead of throwing.
+ */
+class RNPushNotificationBundleConverter {
+    private RNPushNotificationBundleConverter() {
+    }
+
+    static WritableMap toWritableMap(Bundle bundle) {
+        WritableMap map = Arguments.createMap();
+
+        for (String key : bundle.keySet()) {
+            Object value = bundle.get(key);
+
+            if (value == null) {
+                map.putNull(key);
+            } else if (value instanceof String) {
+                map.putString(key, (String) value);
+            } else if (value instanceof Boolean) {
+                map.putBoolean(key, (Boolean) value);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                map.putInt(key, ((Number) value).intValue());
+            } else if (value instanceof Number) {
+                map.putDouble(key, ((Number) value).doubleValue());
+            } else if (value instanceof Bundle) {
+                map.putMap(key, toWritableMap((Bundle) value));
+            } else if (value instanceof ReadableMap) {
+                map.putMap(key, (ReadableMap) value);
+            } else if (value instanceof ReadableArray) {
+                map.putArray(key, (ReadableArray) value);
+            } else if (value instanceof List || value.getClass().isArray()) {
+                map.putArray(key, toWritableArray(value));
+            } else {
+                map.putString(key, value.toString());
+            }
+        }
+
+        return map;
+    }
+
+    private static WritableArray toWritableArray(Object value) {
+        WritableArray array = Arguments.createArray();
+
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                push(array, item);
+            }
+        } else if (value instanceof Object[]) {
+            for (Object item : (Object[]) value) {
+                push(array, item);
+            }
+        } else if (value instanceof int[]) {
+            for (int item : (int[]) value) {
+                array.pushInt(item);
+            }
+        } else if (value instanceof long[]) {
+            for (long item : (long[]) value) {
+                array.pushDouble(item);
+            }
+        } else if (value instanceof double[]) {
+            for (double item : (double[]) value) {
+                array.pushDouble(item);
+            }
+        } else if (value instanceof float[]) {
+            for (float item : (float[]) value) {
+                array.pushDouble(item);
+            }
+        } else if (value instanceof boolean[]) {
+            for (boolean item : (boolean[]) value) {
+                array.pushBoolean(item);
+            }
+        } else if (value instanceof short[]) {
+            for (short item : (short[]) value) {
+                array.pushInt(item);
+            }
+        } else if (value instanceof byte[]) {
+            for (byte item : (byte[]) value) {
+                array.pushInt(item);
+            }
+        } else if (value instanceof char[]) {
+            for (char item : (char[]) value) {
+                array.pushString(String.valueOf(item));
+            }
+        }
+
+        return array;
+    }
+
+    private static void push(WritableArray array, Object item) {
+        if (item == null) {
+            array.pushNull();
+        } else if (item instanceof String) {
+            array.pushString((String) item);
+        } else if (item instanceof Boolean) {
+            array.pushBoolean((Boolean) item);
+        } else if (item instanceof Integer || item instanceof Short || item instanceof Byte) {
+            array.pushInt(((Number) item).intValue());
+        } else if (item instanceof Number) {
+            array.pushDouble(((Number) item).doubleValue());
+        } else if (item instanceof Bundle) {
+            array.pushMap(toWritableMap((Bundle) item));
+        } else if (item instanceof ReadableMap) {
+            array.pushMap((ReadableMap) item);
+        } else if (item instanceof ReadableArray) {
+            array.pushArray((ReadableArray) item);
+        } else if (item instanceof List || item.getClass().isArray()) {
+            array.pushArray(toWritableArray(item));
+        } else {
+            array.pushString(item.toString());
+        }
+    }
+}
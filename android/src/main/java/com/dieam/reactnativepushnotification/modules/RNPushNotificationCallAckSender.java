@@ -0,0 +1,289 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+import com.android.volley.toolbox.JsonObjectRequest;
+import com.android.volley.toolbox.Volley;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Sends call acknowledgements to the call log server.
+ *
+ * A single request queue is shared by the whole process, so connections are reused instead of
+ * starting a new thread pool and disk cache for every call. Acknowledgements are saved to disk
+ * until the server has accepted them and retried with an exponential backoff, including after
+ * the process restarts. When a batch endpoint is configured, acknowledgements that piled up
+ * while offline are sent together as {"updates": [...]}.
+ *
+ * The endpoints are read from the manifest, see {@link RNPushNotificationConfig#getCallAckUrl}.
+ */
+class RNPushNotificationCallAckSender {
+    private static final String FILE_NAME = "rn_push_notification_call_acks";
+    private static final int MAX_PENDING = 100;
+    private static final int MAX_BATCH = 20;
+    private static final long INITIAL_BACKOFF = 1000;
+    private static final long MAX_BACKOFF = 5 * 60 * 1000;
+
+    private static RNPushNotificationCallAckSender sInstance;
+
+    private final RequestQueue requestQueue;
+    private final File file;
+    private final String url;
+    private final String batchUrl;
+    private final Timer timer;
+    private final List<JSONObject> pending = new ArrayList<>();
+    private boolean sending;
+    private boolean retryScheduled;
+    private long backoff;
+
+    private final Runnable retry = new Runnable() {
+        public void run() {
+            synchronized (RNPushNotificationCallAckSender.this) {
+                retryScheduled = false;
+                flush();
+            }
+        }
+    };
+
+    interface Timer {
+        void postDelayed(Runnable runnable, long delayMillis);
+    }
+
+    private static class HandlerTimer implements Timer {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        public void postDelayed(Runnable runnable, long delayMillis) {
+            handler.postDelayed(runnable, delayMillis);
+        }
+    }
+
+    static synchronized RNPushNotificationCallAckSender getInstance(Context context) {
+        if (sInstance == null) {
+            Context applicationContext = context.getApplicationContext();
+            RNPushNotificationConfig config = new RNPushNotificationConfig(applicationContext);
+
+            sInstance = new RNPushNotificationCallAckSender(
+                    Volley.newRequestQueue(applicationContext),
+                    new File(applicationContext.getFilesDir(), FILE_NAME),
+                    config.getCallAckUrl(),
+                    config.getCallAckBatchUrl(),
+                    new HandlerTimer());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Sends the acknowledgements saved in the file, then the ones given to {@link #send}. Retries
+     * are posted to the timer.
+     */
+    RNPushNotificationCallAckSender(RequestQueue requestQueue, File file, String url, String batchUrl, Timer timer) {
+        this.requestQueue = requestQueue;
+        this.file = file;
+        this.url = url;
+        this.batchUrl = batchUrl;
+        this.timer = timer;
+
+        load();
+        flush();
+    }
+
+    /**
+     * Queues the acknowledgement and sends it, unless the server is being backed off from.
+     */
+    synchronized void send(JSONObject ack) {
+        pending.add(ack);
+
+        if (pending.size() > MAX_PENDING) {
+            pending.remove(0);
+            RNPushNotificationMetrics.INSTANCE.increment("callAcksDropped");
+        }
+
+        save();
+        flush();
+    }
+
+    private void flush() {
+        if (sending || retryScheduled || pending.isEmpty()) {
+            return;
+        }
+
+        final List<JSONObject> batch;
+        JSONObject body;
+        String target;
+
+        if (batchUrl != null && pending.size() > 1) {
+            batch = new ArrayList<>(pending.subList(0, Math.min(MAX_BATCH, pending.size())));
+            body = new JSONObject();
+            target = batchUrl;
+
+            try {
+                body.put("updates", new JSONArray(batch));
+            } catch (JSONException e) {
+                Log.e(LOG_TAG, "Failed to build call acknowledgement batch", e);
+                return;
+            }
+        } else {
+            batch = Collections.singletonList(pending.get(0));
+            body = batch.get(0);
+            target = url;
+        }
+
+        JsonObjectRequest request = new JsonObjectRequest(Request.Method.POST, target, body, new Response.Listener<JSONObject>() {
+            @Override
+            public void onResponse(JSONObject response) {
+                onSent(batch);
+            }
+        }, new Response.ErrorListener() {
+            @Override
+            public void onErrorResponse(VolleyError error) {
+                onFailed(batch, error);
+            }
+        });
+        request.setShouldCache(false);
+
+        sending = true;
+        requestQueue.add(request);
+    }
+
+    private synchronized void onSent(List<JSONObject> batch) {
+        sending = false;
+        backoff = 0;
+        pending.removeAll(batch);
+        RNPushNotificationMetrics.INSTANCE.increment("callAcksSent", batch.size());
+
+        save();
+        flush();
+    }
+
+    private synchronized void onFailed(List<JSONObject> batch, VolleyError error) {
+        sending = false;
+
+        int status = error.networkResponse != null ? error.networkResponse.statusCode : 0;
+
+        if (isRejected(status)) {
+            // Rejected by the server, sending them again wouldn't change anything
+            Log.e(LOG_TAG, "Call acknowledgement rejected with status " + status);
+            pending.removeAll(batch);
+            RNPushNotificationMetrics.INSTANCE.increment("callAcksDropped", batch.size());
+
+            save();
+            flush();
+            return;
+        }
+
+        backoff = nextBackoff(backoff);
+        retryScheduled = true;
+        timer.postDelayed(retry, backoff);
+
+        Log.w(LOG_TAG, "Failed to send call acknowledgement, retrying in " + backoff + "ms: " + error);
+        RNPushNotificationMetrics.INSTANCE.increment("callAckRetries");
+    }
+
+    /**
+     * Client errors other than timeouts and rate limiting, sending again wouldn't change them.
+     */
+    static boolean isRejected(int status) {
+        return status >= 400 && status < 500 && status != 408 && status != 429;
+    }
+
+    /**
+     * Delay before the next retry, doubling from {@link #INITIAL_BACKOFF} up to
+     * {@link #MAX_BACKOFF}. 0 means there was no failure yet.
+     */
+    static long nextBackoff(long backoff) {
+        return backoff == 0 ? INITIAL_BACKOFF : Math.min(backoff * 2, MAX_BACKOFF);
+    }
+
+    private void load() {
+        try {
+            pending.addAll(readAcks(file));
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Failed to read pending call acknowledgements", e);
+        } catch (JSONException e) {
+            Log.e(LOG_TAG, "Failed to read pending call acknowledgements", e);
+        }
+    }
+
+    private void save() {
+        try {
+            writeAcks(file, pending);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Failed to save pending call acknowledgements", e);
+        }
+    }
+
+    /**
+     * Reads the acknowledgements saved by {@link #writeAcks}, none if there is no such file.
+     */
+    static List<JSONObject> readAcks(File file) throws IOException, JSONException {
+        List<JSONObject> acks = new ArrayList<>();
+
+        if (!file.exists()) {
+            return acks;
+        }
+
+        FileInputStream in = new FileInputStream(file);
+
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                content.write(buffer, 0, read);
+            }
+
+            JSONArray array = new JSONArray(content.toString("UTF-8"));
+
+            for (int i = 0; i < array.length(); i++) {
+                acks.add(array.getJSONObject(i));
+            }
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Ignored, the content has been read
+            }
+        }
+
+        return acks;
+    }
+
+    /**
+     * Saves the acknowledgements as a JSON array, or deletes the file when there are none.
+     */
+    static void writeAcks(File file, List<JSONObject> acks) throws IOException {
+        if (acks.isEmpty()) {
+            file.delete();
+            return;
+        }
+
+        FileOutputStream out = new FileOutputStream(file);
+
+        try {
+            out.write(new JSONArray(acks).toString().getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+}
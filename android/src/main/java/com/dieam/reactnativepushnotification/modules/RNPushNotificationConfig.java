@@ -12,6 +12,16 @@ class RNPushNotificationConfig {
     private static final String KEY_NOTIFICATION_DEFAULT_CHANNEL_ID = "com.dieam.reactnativepushnotification.default_notification_channel_id";
     private static final String KEY_NOTIFICATION_FOREGROUND = "com.dieam.reactnativepushnotification.notification_foreground";
     private static final String KEY_NOTIFICATION_COLOR = "com.dieam.reactnativepushnotification.notification_color";
+    private static final String KEY_NOTIFICATION_HEADLESS_RENDER = "com.dieam.reactnativepushnotification.notification_headless_render";
+    private static final String KEY_NOTIFICATION_STRUCTURED_EVENTS = "com.dieam.reactnativepushnotification.notification_structured_events";
+    private static final String KEY_CALL_ACK_URL = "com.dieam.reactnativepushnotification.call_ack_url";
+    private static final String KEY_CALL_ACK_BATCH_URL = "com.dieam.reactnativepushnotification.call_ack_batch_url";
+    private static final String KEY_MESSAGE_TYPE_KEY = "com.dieam.reactnativepushnotification.message_type_key";
+    private static final String KEY_MESSAGE_ROUTES = "com.dieam.reactnativepushnotification.message_routes";
+    private static final String KEY_BULK_CHANNEL_IDS = "com.dieam.reactnativepushnotification.bulk_channel_ids";
+    private static final String KEY_NOTIFICATION_PICTURES_DEADLINE = "com.dieam.reactnativepushnotification.notification_pictures_deadline";
+
+    private static final String DEFAULT_CALL_ACK_URL = "https://letskinect.com/lkpserver/api/call/log/update";
 
     private static Bundle metadata;
     private Context context;
@@ -66,6 +76,40 @@ class RNPushNotificationConfig {
         return false;
     }
 
+    public boolean getNotificationHeadlessRender() {
+        try {
+            return metadata.getBoolean(KEY_NOTIFICATION_HEADLESS_RENDER, false);
+        } catch (Exception e) {
+            Log.w(RNPushNotification.LOG_TAG, "Unable to find " + KEY_NOTIFICATION_HEADLESS_RENDER + " in manifest. Falling back to default");
+        }
+        // Default
+        return false;
+    }
+
+    public boolean getNotificationStructuredEvents() {
+        try {
+            return metadata.getBoolean(KEY_NOTIFICATION_STRUCTURED_EVENTS, false);
+        } catch (Exception e) {
+            Log.w(RNPushNotification.LOG_TAG, "Unable to find " + KEY_NOTIFICATION_STRUCTURED_EVENTS + " in manifest. Falling back to default");
+        }
+        // Default
+        return false;
+    }
+
+    /**
+     * Milliseconds to wait for pictures before posting a notification without them, 0 waits
+     * until they are all downloaded.
+     */
+    public int getNotificationPicturesDeadline() {
+        try {
+            return metadata.getInt(KEY_NOTIFICATION_PICTURES_DEADLINE, 3000);
+        } catch (Exception e) {
+            Log.w(RNPushNotification.LOG_TAG, "Unable to find " + KEY_NOTIFICATION_PICTURES_DEADLINE + " in manifest. Falling back to default");
+        }
+        // Default
+        return 3000;
+    }
+
     public String getNotificationDefaultChannelId() {
         try {
             return getStringValue(KEY_NOTIFICATION_DEFAULT_CHANNEL_ID,
@@ -77,4 +121,36 @@ class RNPushNotificationConfig {
         // Default
         return "fcm_fallback_notification_channel";
     }
+
+    public String getCallAckUrl() {
+        return getStringValue(KEY_CALL_ACK_URL, DEFAULT_CALL_ACK_URL);
+    }
+
+    /**
+     * Endpoint taking several call acknowledgements at once, null when the server has none.
+     */
+    public String getCallAckBatchUrl() {
+        return getStringValue(KEY_CALL_ACK_BATCH_URL, null);
+    }
+
+    /**
+     * Data key holding the type of remote messages.
+     */
+    public String getMessageTypeKey() {
+        return getStringValue(KEY_MESSAGE_TYPE_KEY, "LKCallType");
+    }
+
+    /**
+     * Comma separated type:kind pairs, kind being one of call, chat, silent or default.
+     */
+    public String getMessageRoutes() {
+        return getStringValue(KEY_MESSAGE_ROUTES, "call:call,chat:chat");
+    }
+
+    /**
+     * Comma separated ids of the channels whose notifications are rendered after all others.
+     */
+    public String getBulkChannelIds() {
+        return getStringValue(KEY_BULK_CHANNEL_IDS, null);
+    }
 }
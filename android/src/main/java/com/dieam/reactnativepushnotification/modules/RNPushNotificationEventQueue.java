@@ -0,0 +1,278 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.facebook.react.ReactApplication;
+import com.facebook.react.ReactInstanceManager;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Process-wide queue of the events sent to JS.
+ *
+ * Events emitted while there is no active React context are kept, in order, and flushed as
+ * soon as one is initialized, instead of being dropped. A single ReactInstanceEventListener is
+ * registered for the whole process, whatever the number of producers.
+ *
+ * The buffer is bounded: once an event type reaches its cap, or the buffer is full, the oldest
+ * event of that type, or the oldest event overall, is dropped and counted in the metrics.
+ *
+ * With batching enabled, events are held for up to the configured latency and sent as a single
+ * {@link #BATCH_EVENT} carrying an array of {name, params}, which the JS side dispatches again
+ * as individual events. A burst of pushes then crosses the bridge once.
+ *
+ * Every method can be called from any thread, the queue itself is only touched on the main
+ * thread, where React expects to be set up.
+ */
+public class RNPushNotificationEventQueue {
+    static final String BATCH_EVENT = "notificationEventBatch";
+
+    private static final int CAPACITY = 256;
+    private static final int DEFAULT_TYPE_CAP = 64;
+    private static final Map<String, Integer> TYPE_CAPS = new HashMap<>();
+
+    static {
+        TYPE_CAPS.put("remoteNotificationReceived", 128);
+        // Only the latest token is of any use
+        TYPE_CAPS.put("remoteNotificationsRegistered", 1);
+    }
+
+    private static RNPushNotificationEventQueue sInstance;
+
+    private static class Event {
+        final String name;
+        final Object params;
+
+        Event(String name, Object params) {
+            this.name = name;
+            this.params = params;
+        }
+    }
+
+    private final Application application;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ArrayDeque<Event> pending = new ArrayDeque<>();
+    private final Map<String, Integer> pendingCounts = new HashMap<>();
+    private final List<Runnable> pendingTasks = new ArrayList<>();
+    private ReactInstanceManager reactInstanceManager;
+    private long batchLatency;
+    private boolean batchScheduled;
+
+    private final Runnable emitBatch = new Runnable() {
+        public void run() {
+            batchScheduled = false;
+            emitBatch();
+        }
+    };
+
+    /**
+     * Returns null when the application doesn't host React Native itself, there is then no
+     * context to wait for.
+     */
+    public static synchronized RNPushNotificationEventQueue getInstance(Context context) {
+        if (sInstance == null) {
+            Context applicationContext = context.getApplicationContext();
+
+            if (!(applicationContext instanceof ReactApplication)) {
+                return null;
+            }
+
+            sInstance = new RNPushNotificationEventQueue((Application) applicationContext);
+        }
+        return sInstance;
+    }
+
+    private RNPushNotificationEventQueue(Application application) {
+        this.application = application;
+    }
+
+    /**
+     * Sends an event to JS, now if the React context is active, otherwise once it is.
+     * {@code params} is either a WritableMap or a Bundle, Bundles are converted when sent so
+     * events can be queued before React Native is loaded.
+     */
+    public void enqueue(final String name, final Object params) {
+        runOnMainThread(new Runnable() {
+            public void run() {
+                add(new Event(name, params));
+                flush();
+            }
+        });
+    }
+
+    /**
+     * Holds events for up to {@code latencyMs} and sends them as one batch, 0 sends every
+     * event on its own.
+     */
+    public void setBatchLatency(final long latencyMs) {
+        runOnMainThread(new Runnable() {
+            public void run() {
+                batchLatency = Math.max(0, latencyMs);
+                flush();
+            }
+        });
+    }
+
+    /**
+     * Runs the task on the main thread once the React context is active.
+     */
+    public void runWhenReady(final Runnable task) {
+        runOnMainThread(new Runnable() {
+            public void run() {
+                pendingTasks.add(task);
+                flush();
+            }
+        });
+    }
+
+    private void add(Event event) {
+        Integer count = pendingCounts.get(event.name);
+        Integer cap = TYPE_CAPS.get(event.name);
+        int typeCap = cap != null ? cap : DEFAULT_TYPE_CAP;
+
+        if (count != null && count >= typeCap) {
+            for (Iterator<Event> iterator = pending.iterator(); iterator.hasNext(); ) {
+                if (iterator.next().name.equals(event.name)) {
+                    iterator.remove();
+                    dropped(event.name);
+                    break;
+                }
+            }
+        } else if (pending.size() >= CAPACITY) {
+            dropped(pending.pollFirst().name);
+        }
+
+        pending.addLast(event);
+        count = pendingCounts.get(event.name);
+        pendingCounts.put(event.name, count == null ? 1 : count + 1);
+    }
+
+    private void dropped(String name) {
+        Integer count = pendingCounts.get(name);
+        pendingCounts.put(name, count - 1);
+
+        Log.w(LOG_TAG, "Too many pending JS events, dropping the oldest " + name);
+        RNPushNotificationMetrics.INSTANCE.increment("jsEventsDropped");
+        RNPushNotificationMetrics.INSTANCE.increment("jsEventsDropped." + name);
+    }
+
+    private void flush() {
+        ReactInstanceManager manager = getReactInstanceManager();
+        ReactContext context = manager.getCurrentReactContext();
+
+        if (context == null || !context.hasActiveCatalystInstance()) {
+            if (!manager.hasStartedCreatingInitialContext()) {
+                // Construct it in the background
+                manager.createReactContextInBackground();
+            }
+            return;
+        }
+
+        if (!pendingTasks.isEmpty()) {
+            List<Runnable> tasks = new ArrayList<>(pendingTasks);
+            pendingTasks.clear();
+
+            for (Runnable task : tasks) {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "Failed to run a task waiting for the React context", e);
+                }
+            }
+        }
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        if (batchLatency > 0) {
+            if (!batchScheduled) {
+                batchScheduled = true;
+                mainHandler.postDelayed(emitBatch, batchLatency);
+            }
+            return;
+        }
+
+        DeviceEventManagerModule.RCTDeviceEventEmitter emitter = context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class);
+
+        for (Event event = pending.pollFirst(); event != null; event = pending.pollFirst()) {
+            emitter.emit(event.name, toParams(event.params));
+        }
+
+        pendingCounts.clear();
+    }
+
+    private void emitBatch() {
+        ReactContext context = getReactInstanceManager().getCurrentReactContext();
+
+        // Left pending otherwise, they are sent once a context is initialized
+        if (pending.isEmpty() || context == null || !context.hasActiveCatalystInstance()) {
+            return;
+        }
+
+        WritableArray batch = Arguments.createArray();
+
+        for (Event event = pending.pollFirst(); event != null; event = pending.pollFirst()) {
+            WritableMap entry = Arguments.createMap();
+            entry.putString("name", event.name);
+
+            Object params = toParams(event.params);
+            if (params instanceof ReadableMap) {
+                entry.putMap("params", (ReadableMap) params);
+            } else if (params != null) {
+                entry.putString("params", params.toString());
+            } else {
+                entry.putNull("params");
+            }
+
+            batch.pushMap(entry);
+        }
+
+        pendingCounts.clear();
+
+        context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(BATCH_EVENT, batch);
+        RNPushNotificationMetrics.INSTANCE.increment("jsEventBatches");
+    }
+
+    private static Object toParams(Object params) {
+        return params instanceof Bundle ? RNPushNotificationBundleConverter.toWritableMap((Bundle) params) : params;
+    }
+
+    private ReactInstanceManager getReactInstanceManager() {
+        if (reactInstanceManager == null) {
+            reactInstanceManager = ((ReactApplication) application).getReactNativeHost().getReactInstanceManager();
+            reactInstanceManager.addReactInstanceEventListener(new ReactInstanceManager.ReactInstanceEventListener() {
+                public void onReactContextInitialized(ReactContext context) {
+                    flush();
+                }
+            });
+        }
+        return reactInstanceManager;
+    }
+
+    private void runOnMainThread(Runnable runnable) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            runnable.run();
+        } else {
+            mainHandler.post(runnable);
+        }
+    }
+}
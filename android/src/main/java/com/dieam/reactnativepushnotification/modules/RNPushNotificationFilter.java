@@ -0,0 +1,64 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.ReadableMap;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Criteria passed from JS to select scheduled notifications: a fire date range plus optional
+ * channel, tag and group. Unset criteria match everything.
+ */
+class RNPushNotificationFilter {
+    final long from;
+    final long to;
+    final String channelId;
+    final String tag;
+    final String group;
+
+    RNPushNotificationFilter(long from, long to, String channelId, String tag, String group) {
+        this.from = from;
+        this.to = to;
+        this.channelId = channelId;
+        this.tag = tag;
+        this.group = group;
+    }
+
+    static RNPushNotificationFilter fromMap(ReadableMap map) {
+        if (map == null) {
+            return new RNPushNotificationFilter(Long.MIN_VALUE, Long.MAX_VALUE, null, null, null);
+        }
+
+        return new RNPushNotificationFilter(
+                map.hasKey("from") && !map.isNull("from") ? (long) map.getDouble("from") : Long.MIN_VALUE,
+                map.hasKey("to") && !map.isNull("to") ? (long) map.getDouble("to") : Long.MAX_VALUE,
+                map.hasKey("channelId") ? map.getString("channelId") : null,
+                map.hasKey("tag") ? map.getString("tag") : null,
+                map.hasKey("group") ? map.getString("group") : null);
+    }
+
+    /**
+     * Whether matching needs to look at the payload at all, the date range comes from the index.
+     */
+    boolean needsPayload() {
+        return channelId != null || tag != null || group != null;
+    }
+
+    boolean matches(byte[] payload) {
+        if (!needsPayload()) {
+            return true;
+        }
+
+        try {
+            String[] values = RNPushNotificationAttributes.peekChannelTagAndGroup(payload);
+
+            return (channelId == null || channelId.equals(values[0]))
+                    && (tag == null || tag.equals(values[1]))
+                    && (group == null || group.equals(values[2]));
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "Unable to read scheduled notification for filtering", e);
+            return false;
+        }
+    }
+}
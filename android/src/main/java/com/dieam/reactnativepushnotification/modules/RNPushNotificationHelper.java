@@ -3,7 +3,6 @@ package com.dieam.reactnativepushnotification.modules;
 
 import android.app.ActivityManager;
 import android.app.ActivityManager.RunningAppProcessInfo;
-import android.app.AlarmManager;
 import android.app.Application;
 import android.app.Notification;
 import android.app.NotificationChannel;
@@ -11,16 +10,15 @@ import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.ApplicationInfo;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.media.AudioAttributes;
 import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.service.notification.StatusBarNotification;
 import android.text.Spanned;
 import android.util.Log;
@@ -38,10 +36,10 @@ import org.json.JSONArray;
 import org.json.JSONException;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Calendar;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
 
 import androidx.annotation.RequiresApi;
 import androidx.core.app.NotificationCompat;
@@ -50,7 +48,7 @@ import androidx.core.text.HtmlCompat;
 
 import static com.dieam.reactnativepushnotification.modules.RNPushNotification.KEY_TEXT_REPLY;
 import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
-import static com.dieam.reactnativepushnotification.modules.RNPushNotificationAttributes.fromJson;
+import static com.dieam.reactnativepushnotification.modules.RNPushNotificationAttributes.fromBytes;
 
 public class RNPushNotificationHelper {
     public static final String PREFERENCES_KEY = "rn_push_notification";
@@ -58,12 +56,14 @@ public class RNPushNotificationHelper {
     
     private Context context;
     private RNPushNotificationConfig config;
-    private final SharedPreferences scheduledNotificationsPersistence;
+    private final RNPushNotificationStore scheduledNotificationsPersistence;
+    private final RNPushNotificationScheduler notificationScheduler;
     
     public RNPushNotificationHelper(Application context) {
         this.context = context;
         this.config = new RNPushNotificationConfig(context);
-        this.scheduledNotificationsPersistence = context.getSharedPreferences(RNPushNotificationHelper.PREFERENCES_KEY, Context.MODE_PRIVATE);
+        this.scheduledNotificationsPersistence = RNPushNotificationStore.getInstance(context);
+        this.notificationScheduler = RNPushNotificationScheduler.getInstance(context);
     }
     
     public Class getMainActivityClass() {
@@ -78,10 +78,6 @@ public class RNPushNotificationHelper {
         }
     }
     
-    private AlarmManager getAlarmManager() {
-        return (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-    }
-    
     public void invokeApp(Bundle bundle) {
         String packageName = context.getPackageName();
         Intent launchIntent = context.getPackageManager().getLaunchIntentForPackage(packageName);
@@ -104,24 +100,6 @@ public class RNPushNotificationHelper {
         }
     }
     
-    private PendingIntent toScheduleNotificationIntent(Bundle bundle) {
-        try {
-            int notificationID = Integer.parseInt (bundle.getString ("id"));
-            
-            Intent notificationIntent = new Intent(context, RNPushNotificationPublisher.class);
-            notificationIntent.putExtra(RNPushNotificationPublisher.NOTIFICATION_ID, notificationID);
-            notificationIntent.putExtras(bundle);
-            
-            int flags = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE : PendingIntent.FLAG_UPDATE_CURRENT;
-            
-            return PendingIntent.getBroadcast(context, notificationID, notificationIntent, flags);
-        } catch (Exception e) {
-            Log.e(LOG_TAG, "Unable to parse Notification ID", e);
-        }
-        
-        return null;
-    }
-    
     public void sendNotificationScheduled(Bundle bundle) {
         Class intentClass = getMainActivityClass();
         if (intentClass == null) {
@@ -129,32 +107,19 @@ public class RNPushNotificationHelper {
             return;
         }
         
-        if (bundle.getString("message") == null) {
-            Log.e(LOG_TAG, "No message specified for the scheduled notification");
-            return;
-        }
-        
-        if (bundle.getString("id") == null) {
-            Log.e(LOG_TAG, "No notification ID specified for the scheduled notification");
+        String error = validateScheduledNotification(bundle);
+        if (error != null) {
+            Log.e(LOG_TAG, error);
             return;
         }
         
         double fireDate = bundle.getDouble("fireDate");
-        if (fireDate == 0) {
-            Log.e(LOG_TAG, "No date specified for the scheduled notification");
-            return;
-        }
-        
         RNPushNotificationAttributes notificationAttributes = new RNPushNotificationAttributes(bundle);
         String id = notificationAttributes.getId();
         
         Log.d(LOG_TAG, "Storing push notification with id " + id);
         
-        SharedPreferences.Editor editor = scheduledNotificationsPersistence.edit();
-        editor.putString(id, notificationAttributes.toJson().toString());
-        editor.apply();
-        
-        boolean isSaved = scheduledNotificationsPersistence.contains(id);
+        boolean isSaved = scheduledNotificationsPersistence.put(id, (long) fireDate, notificationAttributes.toBytes());
         if (!isSaved) {
             Log.e(LOG_TAG, "Failed to save " + id);
         }
@@ -162,55 +127,144 @@ public class RNPushNotificationHelper {
         sendNotificationScheduledCore(bundle);
     }
     
-    public void sendNotificationScheduledCore(Bundle bundle) {
-        long fireDate = (long) bundle.getDouble("fireDate");
-        boolean allowWhileIdle = bundle.getBoolean("allowWhileIdle");
+    /**
+     * Schedules a batch of notifications with a single store write and at most one alarm
+     * change. Returns one {id, success, error} result per bundle, in order.
+     */
+    public WritableArray sendNotificationsScheduled(List<Bundle> bundles) {
+        WritableArray results = Arguments.createArray();
         
-        // If the fireDate is in past, this will fire immediately and show the
-        // notification to the user
-        PendingIntent pendingIntent = toScheduleNotificationIntent(bundle);
+        boolean hasActivity = getMainActivityClass() != null;
         
-        if (pendingIntent == null) {
-            return;
+        List<String> ids = new ArrayList<>(bundles.size());
+        List<Long> fireDates = new ArrayList<>(bundles.size());
+        List<byte[]> payloads = new ArrayList<>(bundles.size());
+        List<WritableMap> stored = new ArrayList<>(bundles.size());
+        
+        for (Bundle bundle : bundles) {
+            WritableMap result = Arguments.createMap();
+            result.putString("id", bundle.getString("id"));
+            
+            String error = hasActivity ? validateScheduledNotification(bundle) : "No activity class found for the scheduled notification";
+            
+            if (error == null) {
+                try {
+                    RNPushNotificationAttributes notificationAttributes = new RNPushNotificationAttributes(bundle);
+                    payloads.add(notificationAttributes.toBytes());
+                    ids.add(notificationAttributes.getId());
+                    fireDates.add((long) bundle.getDouble("fireDate"));
+                    stored.add(result);
+                } catch (Exception e) {
+                    error = "Unable to encode the scheduled notification: " + e.getMessage();
+                }
+            }
+            
+            if (error != null) {
+                Log.e(LOG_TAG, error);
+                result.putBoolean("success", false);
+                result.putString("error", error);
+            }
+            
+            results.pushMap(result);
         }
         
-        Log.d(LOG_TAG, String.format("Setting a notification with id %s at time %s",
-            bundle.getString("id"), Long.toString(fireDate)));
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-            if (allowWhileIdle && Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                getAlarmManager().setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, fireDate, pendingIntent);
-            } else {
-                getAlarmManager().setExact(AlarmManager.RTC_WAKEUP, fireDate, pendingIntent);
+        Log.d(LOG_TAG, "Storing " + ids.size() + " push notifications");
+        
+        boolean isSaved = scheduledNotificationsPersistence.putAll(ids, fireDates, payloads);
+        
+        for (WritableMap result : stored) {
+            result.putBoolean("success", isSaved);
+            if (!isSaved) {
+                result.putString("error", "Failed to save the scheduled notification");
             }
-        } else {
-            getAlarmManager().set(AlarmManager.RTC_WAKEUP, fireDate, pendingIntent);
         }
+        
+        if (isSaved && !ids.isEmpty()) {
+            notificationScheduler.arm();
+        }
+        
+        return results;
+    }
+    
+    /**
+     * Returns why the bundle can't be scheduled, or null if it can.
+     */
+    private String validateScheduledNotification(Bundle bundle) {
+        if (bundle.getString("message") == null) {
+            return "No message specified for the scheduled notification";
+        }
+        
+        if (bundle.getString("id") == null) {
+            return "No notification ID specified for the scheduled notification";
+        }
+        
+        if (bundle.getDouble("fireDate") == 0) {
+            return "No date specified for the scheduled notification";
+        }
+        
+        return null;
+    }
+    
+    public void sendNotificationScheduledCore(Bundle bundle) {
+        long fireDate = (long) bundle.getDouble("fireDate");
+        
+        // The notification is already in the store, which orders it by fire date. If it is
+        // now the earliest one the alarm is moved to it. If the fireDate is in past, the
+        // alarm will fire immediately and show the notification to the user
+        Log.d(LOG_TAG, String.format("Setting a notification with id %s at time %s",
+            bundle.getString("id"), Long.toString(fireDate)));
+        
+        notificationScheduler.arm();
     }
     
     
     public void sendToNotificationCentre(final Bundle bundle) {
+        // Kept as it is when posted, it is changed by repeating notifications
+        final Bundle postedBundle = new Bundle(bundle);
+        
         RNPushNotificationPicturesAggregator aggregator = new RNPushNotificationPicturesAggregator(new RNPushNotificationPicturesAggregator.Callback() {
             public void call(Bitmap largeIconImage, Bitmap bigPictureImage, Bitmap bigLargeIconImage) {
                 sendToNotificationCentreWithPicture(bundle, largeIconImage, bigPictureImage, bigLargeIconImage);
             }
+            
+            public void update(Bitmap largeIconImage, Bitmap bigPictureImage, Bitmap bigLargeIconImage) {
+                sendToNotificationCentreWithPicture(postedBundle, largeIconImage, bigPictureImage, bigLargeIconImage, true);
+            }
         });
         
+        aggregator.setDeadline(config.getNotificationPicturesDeadline());
         aggregator.setLargeIconUrl(context, bundle.getString("largeIconUrl"));
         aggregator.setBigLargeIconUrl(context, bundle.getString("bigLargeIconUrl"));
         aggregator.setBigPictureUrl(context, bundle.getString("bigPictureUrl"));
     }
     
     public void sendToNotificationCentreWithPicture(Bundle bundle, Bitmap largeIconBitmap, Bitmap bigPictureBitmap, Bitmap bigLargeIconBitmap) {
+        sendToNotificationCentreWithPicture(bundle, largeIconBitmap, bigPictureBitmap, bigLargeIconBitmap, false);
+    }
+    
+    /**
+     * An update replaces the notification already posted with the same id, silently, and
+     * leaves out everything else done when posting it.
+     */
+    private void sendToNotificationCentreWithPicture(Bundle bundle, Bitmap largeIconBitmap, Bitmap bigPictureBitmap, Bitmap bigLargeIconBitmap, boolean update) {
+        boolean completed = update;
+        
         try {
             Class intentClass = getMainActivityClass();
             if (intentClass == null) {
                 Log.e(LOG_TAG, "No activity class found for the notification");
+                if (!update) {
+                    dropScheduledNotification(bundle.getString("id"));
+                }
                 return;
             }
             
             if (bundle.getString("message") == null) {
                 // this happens when a 'data' notification is received - we do not synthesize a local notification in this case
                 Log.d(LOG_TAG, "Ignore this message if you sent data-only notification. Cannot send to notification centre because there is no 'message' field in: " + bundle);
+                if (!update) {
+                    dropScheduledNotification(bundle.getString("id"));
+                }
                 return;
             }
             
@@ -285,7 +339,7 @@ public class RNPushNotificationHelper {
                                                           .setVisibility(visibility)
                                                           .setPriority(priority)
                                                           .setAutoCancel(bundle.getBoolean("autoCancel", true))
-                                                          .setOnlyAlertOnce(bundle.getBoolean("onlyAlertOnce", false));
+                                                          .setOnlyAlertOnce(update || bundle.getBoolean("onlyAlertOnce", false));
             
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) { // API 24 and higher
                 // Restore showing timestamp on Android 7+
@@ -324,16 +378,16 @@ public class RNPushNotificationHelper {
             String smallIcon = bundle.getString("smallIcon");
             
             if (smallIcon != null && !smallIcon.isEmpty()) {
-                smallIconResId = res.getIdentifier(smallIcon, "drawable", packageName);
+                smallIconResId = RNPushNotificationResourceResolver.getIdentifier(context, smallIcon, "drawable");
                 if (smallIconResId == 0) {
-                    smallIconResId = res.getIdentifier(smallIcon, "mipmap", packageName);
+                    smallIconResId = RNPushNotificationResourceResolver.getIdentifier(context, smallIcon, "mipmap");
                 }
             } else if(smallIcon == null) {
-                smallIconResId = res.getIdentifier("ic_notification", "mipmap", packageName);
+                smallIconResId = RNPushNotificationResourceResolver.getIdentifier(context, "ic_notification", "mipmap");
             }
             
             if (smallIconResId == 0) {
-                smallIconResId = res.getIdentifier("ic_launcher", "mipmap", packageName);
+                smallIconResId = RNPushNotificationResourceResolver.getIdentifier(context, "ic_launcher", "mipmap");
                 
                 if (smallIconResId == 0) {
                     smallIconResId = android.R.drawable.ic_dialog_info;
@@ -349,17 +403,17 @@ public class RNPushNotificationHelper {
                 String largeIcon = bundle.getString("largeIcon");
                 
                 if (largeIcon != null && !largeIcon.isEmpty()) {
-                    largeIconResId = res.getIdentifier(largeIcon, "drawable", packageName);
+                    largeIconResId = RNPushNotificationResourceResolver.getIdentifier(context, largeIcon, "drawable");
                     if (largeIconResId == 0) {
-                        largeIconResId = res.getIdentifier(largeIcon, "mipmap", packageName);
+                        largeIconResId = RNPushNotificationResourceResolver.getIdentifier(context, largeIcon, "mipmap");
                     }
                 } else if(largeIcon == null) {
-                    largeIconResId = res.getIdentifier("ic_launcher", "mipmap", packageName);
+                    largeIconResId = RNPushNotificationResourceResolver.getIdentifier(context, "ic_launcher", "mipmap");
                 }
                 
                 // Before Lolipop there was no large icon for notifications.
                 if (largeIconResId != 0 && (largeIcon != null || Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)) {
-                    largeIconBitmap = BitmapFactory.decodeResource(res, largeIconResId);
+                    largeIconBitmap = RNPushNotificationBitmapCache.getInstance(context).decodeResource(res, largeIconResId);
                 }
             }
             
@@ -394,9 +448,9 @@ public class RNPushNotificationHelper {
                     String bigLargeIcon = bundle.getString("bigLargeIcon");
                     
                     if (bigLargeIcon != null && !bigLargeIcon.isEmpty()) {
-                        bigLargeIconResId = res.getIdentifier(bigLargeIcon, "mipmap", packageName);
+                        bigLargeIconResId = RNPushNotificationResourceResolver.getIdentifier(context, bigLargeIcon, "mipmap");
                         if (bigLargeIconResId != 0) {
-                            bigLargeIconBitmap = BitmapFactory.decodeResource(res, bigLargeIconResId);
+                            bigLargeIconBitmap = RNPushNotificationBitmapCache.getInstance(context).decodeResource(res, bigLargeIconResId);
                         }
                     }
                 }
@@ -690,20 +744,32 @@ public class RNPushNotificationHelper {
                 notification.setCustomContentView (notificationLayout);
             }
             
-            // Remove the notification from the shared preferences once it has been shown
+            // Remove the notification from the scheduled store once it has been shown
             // to avoid showing the notification again when the phone is rebooted. If the
             // notification is not removed, then every time the phone is rebooted, we will
-            // try to reschedule all the notifications stored in shared preferences and since
+            // try to reschedule all the notifications stored in the store and since
             // these notifications will be in the past time, they will be shown immediately
-            // to the user which we shouldn't do. So, remove the notification from the shared
-            // preferences once it has been shown to the user. If it is a repeating notification
+            // to the user which we shouldn't do. So, remove the notification from the
+            // store once it has been shown to the user. If it is a repeating notification
             // it will be scheduled again.
-            if (scheduledNotificationsPersistence.getString(notificationIdString, null) != null) {
-                SharedPreferences.Editor editor = scheduledNotificationsPersistence.edit();
-                editor.remove(notificationIdString);
-                editor.apply();
+            if (update) {
+                // Same as when posting, the app may have come to the foreground since
+                boolean ignored = this.isApplicationInForeground() && bundle.getBoolean("ignoreInForeground");
+                
+                if (!ignored && isNotificationActive(notificationID, bundle.getString("tag"))) {
+                    Notification info = notification.build();
+                    info.defaults |= Notification.DEFAULT_LIGHTS;
+                    
+                    // Also replaces the notification of the foreground service, it has the same id
+                    notificationManager.notify(bundle.getString("tag"), notificationID, info);
+                }
+                return;
             }
             
+            scheduledNotificationsPersistence.remove(notificationIdString);
+            notificationScheduler.unschedule(notificationIdString);
+            completed = true;
+            
             if (!(this.isApplicationInForeground() && bundle.getBoolean("ignoreInForeground"))) {
                 Notification info = notification.build();
                 info.defaults |= Notification.DEFAULT_LIGHTS;
@@ -733,71 +799,104 @@ public class RNPushNotificationHelper {
             this.scheduleNextNotificationIfRepeating(bundle);
         } catch (Exception e) {
             Log.e(LOG_TAG, "failed to send push notification", e);
+            
+            if (!completed) {
+                dropScheduledNotification(bundle.getString("id"));
+            }
         }
     }
     
-    private void scheduleNextNotificationIfRepeating(Bundle bundle) {
-        String repeatType = bundle.getString("repeatType");
-        long repeatTime = (long) bundle.getDouble("repeatTime");
+    /**
+     * Forgets a scheduled notification that can't be shown. Left in the store it would stay
+     * claimed by the drain that took it, and failing the same way, there's no point draining it
+     * again.
+     */
+    private void dropScheduledNotification(String notificationIdString) {
+        if (notificationIdString != null && scheduledNotificationsPersistence.remove(notificationIdString)) {
+            Log.w(LOG_TAG, "Dropping scheduled notification " + notificationIdString + ", it can't be shown");
+            notificationScheduler.unschedule(notificationIdString);
+        }
+    }
+    
+    /**
+     * Whether the notification is known to be still shown, it isn't brought back once
+     * dismissed. Always false before API 23, where it can't be known.
+     */
+    private boolean isNotificationActive(int notificationID, String tag) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return false;
+        }
         
-        if (repeatType != null) {
-            long fireDate = (long) bundle.getDouble("fireDate");
-            
-            boolean validRepeatType = Arrays.asList("time", "month", "week", "day", "hour", "minute").contains(repeatType);
-            
-            // Sanity checks
-            if (!validRepeatType) {
-                Log.w(LOG_TAG, String.format("Invalid repeatType specified as %s", repeatType));
-                return;
-            }
-            
-            if ("time".equals(repeatType) && repeatTime <= 0) {
-                Log.w(LOG_TAG, "repeatType specified as time but no repeatTime " +
-                                   "has been mentioned");
-                return;
-            }
-            
-            long newFireDate;
-            if ("time".equals(repeatType)) {
-                newFireDate = fireDate + repeatTime;
-            } else {
-                int repeatField = getRepeatField(repeatType);
-                
-                final Calendar nextEvent = Calendar.getInstance();
-                nextEvent.setTimeInMillis(fireDate);
-                // Limits repeat time increment to int instead of long
-                int increment = repeatTime > 0 ? (int) repeatTime : 1;
-                nextEvent.add(repeatField, increment);
-                
-                newFireDate = nextEvent.getTimeInMillis();
+        for (StatusBarNotification active : notificationManager().getActiveNotifications()) {
+            if (active.getId() == notificationID && (tag == null ? active.getTag() == null : tag.equals(active.getTag()))) {
+                return true;
             }
-            
-            // Sanity check, should never happen
-            if (newFireDate != 0) {
-                Log.d(LOG_TAG, String.format("Repeating notification with id %s at time %s",
-                    bundle.getString("id"), Long.toString(newFireDate)));
-                bundle.putDouble("fireDate", newFireDate);
-                this.sendNotificationScheduled(bundle);
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Removes scheduled notifications that were shown some other way, for instance as part of
+     * a summary, with a single store write, and stores the next occurrences of the repeating
+     * ones with another. The alarm isn't re-armed, the caller arms it once done.
+     */
+    public void completeScheduledNotifications(List<String> ids, List<Bundle> bundles) {
+        List<String> nextIds = new ArrayList<>(bundles.size());
+        List<Long> nextFireDates = new ArrayList<>(bundles.size());
+        List<byte[]> nextPayloads = new ArrayList<>(bundles.size());
+        
+        for (Bundle bundle : bundles) {
+            if (advanceIfRepeating(bundle)) {
+                nextIds.add(bundle.getString("id"));
+                nextFireDates.add((long) bundle.getDouble("fireDate"));
+                nextPayloads.add(new RNPushNotificationAttributes(bundle).toBytes());
             }
         }
+        
+        scheduledNotificationsPersistence.removeAll(ids);
+        notificationScheduler.release(ids);
+        
+        if (!scheduledNotificationsPersistence.putAll(nextIds, nextFireDates, nextPayloads)) {
+            Log.e(LOG_TAG, "Failed to save the next occurrences of " + nextIds.size() + " repeating notifications");
+        }
     }
     
-    private int getRepeatField(String repeatType) {
-        switch (repeatType) {
-            case "month":
-                return Calendar.MONTH;
-            case "week":
-                return Calendar.WEEK_OF_YEAR;
-            case "hour":
-                return Calendar.HOUR;
-            case "minute":
-                return Calendar.MINUTE;
-            case "day":
-            default:
-                return Calendar.DATE;
+    private void scheduleNextNotificationIfRepeating(Bundle bundle) {
+        if (advanceIfRepeating(bundle)) {
+            this.sendNotificationScheduled(bundle);
         }
     }
     
+    /**
+     * Moves the fire date of a repeating notification to its next occurrence. Returns false if
+     * it doesn't repeat or has ended.
+     */
+    private boolean advanceIfRepeating(Bundle bundle) {
+        RNPushNotificationRecurrence recurrence = RNPushNotificationRecurrence.fromBundle(bundle);
+        
+        if (recurrence == null) {
+            return false;
+        }
+        
+        long now = System.currentTimeMillis();
+        long fireDate = (long) bundle.getDouble("fireDate");
+        long occurrence = (long) bundle.getDouble("repeatOccurrence");
+        
+        // Occurrences missed while the device was asleep or off are skipped, not shown one by one
+        long newFireDate = recurrence.next(fireDate != 0 ? fireDate : now, occurrence, now, TimeZone.getDefault());
+        
+        if (newFireDate == RNPushNotificationRecurrence.NONE) {
+            Log.d(LOG_TAG, "Repeating notification with id " + bundle.getString("id") + " has ended");
+            return false;
+        }
+        
+        Log.d(LOG_TAG, "Repeating notification with id " + bundle.getString("id") + " at time " + newFireDate);
+        bundle.putDouble("fireDate", newFireDate);
+        bundle.putDouble("repeatOccurrence", recurrence.getOccurrence());
+        return true;
+    }
+    
     private Uri getSoundUri(String soundName) {
         if (soundName == null || "default".equalsIgnoreCase(soundName)) {
             return RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
@@ -807,12 +906,10 @@ public class RNPushNotificationHelper {
             // So the strings 'my_sound.mp3' AND 'my_sound' are accepted
             // The reason is to make the iOS and android javascript interfaces compatible
             
-            int resId;
-            if (context.getResources().getIdentifier(soundName, "raw", context.getPackageName()) != 0) {
-                resId = context.getResources().getIdentifier(soundName, "raw", context.getPackageName());
-            } else {
+            int resId = RNPushNotificationResourceResolver.getIdentifier(context, soundName, "raw");
+            if (resId == 0) {
                 soundName = soundName.substring(0, soundName.lastIndexOf('.'));
-                resId = context.getResources().getIdentifier(soundName, "raw", context.getPackageName());
+                resId = RNPushNotificationResourceResolver.getIdentifier(context, soundName, "raw");
             }
             
             return Uri.parse("android.resource://" + context.getPackageName() + "/" + resId);
@@ -890,62 +987,204 @@ public class RNPushNotificationHelper {
     }
     
     public WritableArray getScheduledLocalNotifications() {
+        return toScheduledNotificationsArray(scheduledNotificationsPersistence.ids());
+    }
+    
+    /**
+     * Returns the notifications firing in [from, to), earliest first. Only the entries in
+     * range are read from the store.
+     */
+    public WritableArray getScheduledLocalNotificationsBetween(long from, long to) {
+        return toScheduledNotificationsArray(scheduledNotificationsPersistence.idsBetween(from, to, Integer.MAX_VALUE));
+    }
+    
+    private WritableArray toScheduledNotificationsArray(List<String> ids) {
         WritableArray scheduled = Arguments.createArray();
         
-        Map<String, ?> scheduledNotifications = scheduledNotificationsPersistence.getAll();
+        for (String id : ids) {
+            byte[] payload = scheduledNotificationsPersistence.get(id);
+            if (payload == null) {
+                continue;
+            }
+            
+            try {
+                scheduled.pushMap(toScheduledNotificationMap(fromBytes(payload)));
+            } catch (JSONException | IllegalArgumentException e) {
+                Log.e(LOG_TAG, e.getMessage());
+            }
+        }
         
-        for (Map.Entry<String, ?> entry : scheduledNotifications.entrySet()) {
+        return scheduled;
+    }
+    
+    /**
+     * Returns one page of scheduled notifications, earliest first, as
+     * {notifications, cursor}. Pass the returned cursor back to get the next page, it is
+     * null once there are no more. Entries are matched on the index and the few fields the
+     * filter needs, only the ones on the page are fully decoded.
+     */
+    public WritableMap getScheduledLocalNotificationsPage(String cursor, int pageSize, RNPushNotificationFilter filter) {
+        WritableArray page = Arguments.createArray();
+        int pageCount = 0;
+        
+        long from = filter.from;
+        String afterId = null;
+        
+        if (cursor != null) {
+            int separator = cursor.indexOf(':');
             try {
-                RNPushNotificationAttributes notification = fromJson(entry.getValue().toString());
-                WritableMap notificationMap = Arguments.createMap();
+                long cursorFireDate = Long.parseLong(cursor.substring(0, separator));
+                if (cursorFireDate >= from) {
+                    from = cursorFireDate;
+                    afterId = cursor.substring(separator + 1);
+                }
+            } catch (Exception e) {
+                Log.e(LOG_TAG, "Invalid scheduled notifications cursor " + cursor, e);
+            }
+        }
+        
+        String nextCursor = null;
+        int scanSize = Math.max(pageSize, 32);
+        
+        scan:
+        while (true) {
+            List<String> ids = scheduledNotificationsPersistence.idsAfter(from, afterId, filter.to, scanSize);
+            
+            for (String id : ids) {
+                long fireDate = scheduledNotificationsPersistence.getFireDate(id);
+                byte[] payload = scheduledNotificationsPersistence.get(id);
                 
-                notificationMap.putString("title", notification.getTitle());
-                notificationMap.putString("message", notification.getMessage());
-                notificationMap.putString("number", notification.getNumber());
-                notificationMap.putDouble("date", notification.getFireDate());
-                notificationMap.putString("id", notification.getId());
-                notificationMap.putString("repeatInterval", notification.getRepeatType());
-                notificationMap.putString("soundName", notification.getSound());
-                notificationMap.putString("data", notification.getUserInfo());
+                if (payload == null || fireDate == -1) {
+                    continue;
+                }
                 
-                scheduled.pushMap(notificationMap);
-            } catch (JSONException e) {
-                Log.e(LOG_TAG, e.getMessage());
+                from = fireDate;
+                afterId = id;
+                
+                if (!filter.matches(payload)) {
+                    continue;
+                }
+                
+                try {
+                    page.pushMap(toScheduledNotificationMap(fromBytes(payload)));
+                    pageCount++;
+                } catch (JSONException | IllegalArgumentException e) {
+                    Log.e(LOG_TAG, e.getMessage());
+                    continue;
+                }
+                
+                if (pageCount >= pageSize) {
+                    nextCursor = fireDate + ":" + id;
+                    break scan;
+                }
+            }
+            
+            if (ids.size() < scanSize) {
+                break;
             }
         }
         
-        return scheduled;
+        WritableMap result = Arguments.createMap();
+        result.putArray("notifications", page);
+        if (nextCursor != null) {
+            result.putString("cursor", nextCursor);
+        } else {
+            result.putNull("cursor");
+        }
+        
+        return result;
+    }
+    
+    private WritableMap toScheduledNotificationMap(RNPushNotificationAttributes notification) {
+        WritableMap notificationMap = Arguments.createMap();
+        
+        notificationMap.putString("title", notification.getTitle());
+        notificationMap.putString("message", notification.getMessage());
+        notificationMap.putString("number", notification.getNumber());
+        notificationMap.putDouble("date", notification.getFireDate());
+        notificationMap.putString("id", notification.getId());
+        notificationMap.putString("repeatInterval", notification.getRepeatType());
+        notificationMap.putString("soundName", notification.getSound());
+        notificationMap.putString("data", notification.getUserInfo());
+        
+        return notificationMap;
     }
     
     public void cancelAllScheduledNotifications() {
         Log.i(LOG_TAG, "Cancelling all notifications");
         
-        for (String id : scheduledNotificationsPersistence.getAll().keySet()) {
-            cancelScheduledNotification(id);
+        cancelScheduledNotifications(scheduledNotificationsPersistence.ids());
+    }
+    
+    /**
+     * Cancels every scheduled notification matching the filter, returns how many were cancelled.
+     */
+    public int cancelScheduledNotificationsWhere(RNPushNotificationFilter filter) {
+        List<String> ids = new ArrayList<>();
+        
+        for (String id : scheduledNotificationsPersistence.idsBetween(filter.from, filter.to, Integer.MAX_VALUE)) {
+            if (!filter.needsPayload()) {
+                ids.add(id);
+                continue;
+            }
+            
+            byte[] payload = scheduledNotificationsPersistence.get(id);
+            if (payload != null && filter.matches(payload)) {
+                ids.add(id);
+            }
         }
+        
+        Log.i(LOG_TAG, "Cancelling " + ids.size() + " matching notifications");
+        
+        return cancelScheduledNotifications(ids).size();
     }
     
-    public void cancelScheduledNotification(String notificationIDString) {
-        Log.i(LOG_TAG, "Cancelling notification: " + notificationIDString);
+    /**
+     * Bulk version of {@link #cancelScheduledNotification}: a single store write, the alarm is
+     * moved at most once and only the notifications actually shown are cancelled.
+     */
+    private List<String> cancelScheduledNotifications(List<String> ids) {
+        long start = SystemClock.elapsedRealtime();
         
-        // remove it from the alarm manger schedule
-        Bundle b = new Bundle();
-        b.putString("id", notificationIDString);
-        PendingIntent pendingIntent = toScheduleNotificationIntent(b);
+        List<String> removed = scheduledNotificationsPersistence.removeAll(ids);
+        notificationScheduler.unscheduleAll(removed);
         
-        if (pendingIntent != null) {
-            getAlarmManager().cancel(pendingIntent);
-        }
+        NotificationManager notificationManager = notificationManager();
         
-        if (scheduledNotificationsPersistence.contains(notificationIDString)) {
-            // remove it from local storage
-            SharedPreferences.Editor editor = scheduledNotificationsPersistence.edit();
-            editor.remove(notificationIDString);
-            editor.apply();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            Set<String> cancelled = new HashSet<>(removed);
+            
+            for (StatusBarNotification notification : notificationManager.getActiveNotifications()) {
+                if (notification.getTag() == null && cancelled.contains(String.valueOf(notification.getId()))) {
+                    notificationManager.cancel(notification.getId());
+                }
+            }
         } else {
+            for (String id : removed) {
+                try {
+                    notificationManager.cancel(Integer.parseInt(id));
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "Unable to parse Notification ID " + id, e);
+                }
+            }
+        }
+        
+        RNPushNotificationMetrics.INSTANCE.record("bulkCancel", SystemClock.elapsedRealtime() - start);
+        
+        return removed;
+    }
+    
+    public void cancelScheduledNotification(String notificationIDString) {
+        Log.i(LOG_TAG, "Cancelling notification: " + notificationIDString);
+        
+        // remove it from local storage
+        if (!scheduledNotificationsPersistence.remove(notificationIDString)) {
             Log.w(LOG_TAG, "Unable to find notification " + notificationIDString);
         }
         
+        // and move the alarm along if it was set for this one
+        notificationScheduler.unschedule(notificationIDString);
+        
         // removed it from the notification center
         NotificationManager notificationManager = notificationManager();
         
@@ -1,6 +1,6 @@
 package com.dieam.reactnativepushnotification.modules;
 
-import android.os.Build;
+import android.content.Context;
 import android.os.Bundle;
 
 import com.facebook.react.bridge.Arguments;
@@ -8,79 +8,88 @@ import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.util.Set;
-
 /**
  * Created by lambert on 2016/10/09.
  */
 
 public class RNPushNotificationJsDelivery {
     private ReactContext mReactContext;
+    private RNPushNotificationEventQueue mEventQueue;
+    private boolean mStructuredEvents;
 
     public RNPushNotificationJsDelivery(ReactContext reactContext) {
         mReactContext = reactContext;
+        mEventQueue = RNPushNotificationEventQueue.getInstance(reactContext);
+        mStructuredEvents = new RNPushNotificationConfig(reactContext).getNotificationStructuredEvents();
     }
 
+    /**
+     * Events sent without a React context are queued until there is one.
+     */
+    public RNPushNotificationJsDelivery(Context context) {
+        mEventQueue = RNPushNotificationEventQueue.getInstance(context);
+        mStructuredEvents = new RNPushNotificationConfig(context).getNotificationStructuredEvents();
+    }
+
+    /**
+     * {@code params} is a WritableMap, or a Bundle when React Native might not be loaded yet.
+     */
     void sendEvent(String eventName, Object params) {
-        if (mReactContext.hasActiveCatalystInstance()) {
+        if (mEventQueue != null) {
+            mEventQueue.enqueue(eventName, params);
+        } else if (mReactContext != null && mReactContext.hasActiveCatalystInstance()) {
             mReactContext
                     .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                    .emit(eventName, params);
+                    .emit(eventName, params instanceof Bundle ? RNPushNotificationBundleConverter.toWritableMap((Bundle) params) : params);
         }
     }
 
     void notifyRemoteFetch(Bundle bundle) {
-        String bundleString = convertJSON(bundle);
-        WritableMap params = Arguments.createMap();
-        params.putString("dataJSON", bundleString);
-        sendEvent("remoteFetch", params);
+        sendEvent("remoteFetch", toParams(bundle));
     }
 
     void notifyNotification(Bundle bundle) {
-        String bundleString = convertJSON(bundle);
-
-        WritableMap params = Arguments.createMap();
-        params.putString("dataJSON", bundleString);
-
-        sendEvent("remoteNotificationReceived", params);
+        sendEvent("remoteNotificationReceived", toParams(bundle));
     }
 
     void notifyNotificationAction(Bundle bundle) {
-        String bundleString = convertJSON(bundle);
+        sendEvent("notificationActionReceived", toParams(bundle));
+    }
 
-        WritableMap params = Arguments.createMap();
-        params.putString("dataJSON", bundleString);
+    /**
+     * Event params for a notification: the notification itself under "data" when structured
+     * events are enabled, or as a JSON string under "dataJSON" otherwise.
+     */
+    private Bundle toParams(Bundle bundle) {
+        Bundle params = new Bundle();
+
+        if (mStructuredEvents) {
+            // Converted when the event is sent, copied as the notification can still change
+            params.putBundle("data", new Bundle(bundle));
+        } else {
+            params.putString("dataJSON", convertJSON(bundle));
+        }
 
-        sendEvent("notificationActionReceived", params);
+        return params;
     }
 
-    String convertJSON(Bundle bundle) {
-        try {
-            JSONObject json = convertJSONObject(bundle);
-            return json.toString();
-        } catch (JSONException e) {
-            return null;
+    /**
+     * Same as the event params, for getInitialNotification.
+     */
+    WritableMap toWritableParams(Bundle bundle) {
+        WritableMap params = Arguments.createMap();
+
+        if (mStructuredEvents) {
+            params.putMap("data", RNPushNotificationBundleConverter.toWritableMap(bundle));
+        } else {
+            params.putString("dataJSON", convertJSON(bundle));
         }
+
+        return params;
     }
-    
-    // a Bundle is not a map, so we have to convert it explicitly
-    private JSONObject convertJSONObject(Bundle bundle) throws JSONException {
-        JSONObject json = new JSONObject();
-        Set<String> keys = bundle.keySet();
-        for (String key : keys) {
-            Object value = bundle.get(key);
-            if (value instanceof Bundle) {
-                json.put(key, convertJSONObject((Bundle)value));
-            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-                json.put(key, JSONObject.wrap(value));
-            } else {
-                json.put(key, value);
-            }
-        }
-        return json;
+
+    String convertJSON(Bundle bundle) {
+        return RNPushNotificationJsonSerializer.toJson(bundle);
     }
 
 }
@@ -0,0 +1,151 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.os.Bundle;
+import android.util.JsonWriter;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Array;
+import java.util.Map;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Serializes Bundles to JSON strings for JS.
+ *
+ * Values are streamed with a {@link JsonWriter} into a buffer reused by each thread, instead of
+ * building a JSONObject tree first and printing it. The output is the same as the JSONObject
+ * one, apart from "/" not being escaped: nested Bundles, Maps, collections and arrays, primitive
+ * ones included, are written as JSON objects and arrays, anything else as its string
+ * representation.
+ */
+class RNPushNotificationJsonSerializer {
+    // Larger buffers are dropped after use instead of staying around for the whole process
+    private static final int MAX_POOLED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringWriter> BUFFER = new ThreadLocal<StringWriter>() {
+        @Override
+        protected StringWriter initialValue() {
+            return new StringWriter(1024);
+        }
+    };
+
+    private RNPushNotificationJsonSerializer() {
+    }
+
+    /**
+     * Returns null when the Bundle can't be represented as JSON, like JSONObject does for
+     * NaN or infinite numbers.
+     */
+    static String toJson(Bundle bundle) {
+        StringWriter buffer = BUFFER.get();
+        buffer.getBuffer().setLength(0);
+
+        try {
+            JsonWriter writer = new JsonWriter(buffer);
+            writeBundle(writer, bundle);
+            writer.flush();
+            return buffer.toString();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Failed to serialize notification", e);
+            return null;
+        } catch (IllegalArgumentException e) {
+            Log.e(LOG_TAG, "Failed to serialize notification", e);
+            return null;
+        } catch (JSONException e) {
+            Log.e(LOG_TAG, "Failed to serialize notification", e);
+            return null;
+        } finally {
+            if (buffer.getBuffer().capacity() > MAX_POOLED_CAPACITY) {
+                BUFFER.remove();
+            }
+        }
+    }
+
+    private static void writeBundle(JsonWriter writer, Bundle bundle) throws IOException, JSONException {
+        writer.beginObject();
+        for (String key : bundle.keySet()) {
+            writer.name(key);
+            writeValue(writer, bundle.get(key));
+        }
+        writer.endObject();
+    }
+
+    private static void writeValue(JsonWriter writer, Object value) throws IOException, JSONException {
+        if (value == null || value == JSONObject.NULL) {
+            writer.nullValue();
+        } else if (value instanceof String) {
+            writer.value((String) value);
+        } else if (value instanceof Boolean) {
+            writer.value((Boolean) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            // Formatted like JSONObject does, 1.0 as 1 and floats without widening them
+            writer.value(new FormattedNumber(JSONObject.numberToString((Number) value)));
+        } else if (value instanceof Number) {
+            writer.value((Number) value);
+        } else if (value instanceof Bundle) {
+            writeBundle(writer, (Bundle) value);
+        } else if (value instanceof Map) {
+            writer.beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                writer.name(String.valueOf(entry.getKey()));
+                writeValue(writer, entry.getValue());
+            }
+            writer.endObject();
+        } else if (value instanceof Iterable) {
+            writer.beginArray();
+            for (Object item : (Iterable<?>) value) {
+                writeValue(writer, item);
+            }
+            writer.endArray();
+        } else if (value.getClass().isArray()) {
+            writer.beginArray();
+            for (int i = 0, length = Array.getLength(value); i < length; i++) {
+                writeValue(writer, Array.get(value, i));
+            }
+            writer.endArray();
+        } else {
+            writer.value(value.toString());
+        }
+    }
+
+    /**
+     * A number already formatted, JsonWriter writes numbers as their toString.
+     */
+    private static final class FormattedNumber extends Number {
+        private final String value;
+
+        FormattedNumber(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public int intValue() {
+            return (int) doubleValue();
+        }
+
+        @Override
+        public long longValue() {
+            return (long) doubleValue();
+        }
+
+        @Override
+        public float floatValue() {
+            return (float) doubleValue();
+        }
+
+        @Override
+        public double doubleValue() {
+            return Double.parseDouble(value);
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+}
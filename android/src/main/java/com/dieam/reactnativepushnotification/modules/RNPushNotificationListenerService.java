@@ -5,29 +5,18 @@ import android.app.NotificationManager;
 import android.content.Context;
 import android.media.AudioManager;
 import android.os.BatteryManager;
-import android.os.Handler;
-import android.os.Looper;
+import android.os.Bundle;
 import android.os.PowerManager;
 import android.util.Log;
 
-import com.android.volley.Request;
-import com.android.volley.RequestQueue;
-import com.android.volley.Response;
-import com.android.volley.VolleyError;
-import com.android.volley.toolbox.JsonObjectRequest;
-import com.android.volley.toolbox.Volley;
-import com.facebook.react.ReactApplication;
-import com.facebook.react.ReactInstanceManager;
-import com.facebook.react.bridge.Arguments;
-import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContext;
-import com.facebook.react.bridge.WritableMap;
 import com.google.firebase.messaging.FirebaseMessagingService;
 import com.google.firebase.messaging.RemoteMessage;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.Map;
+
 import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
 
 public class RNPushNotificationListenerService extends FirebaseMessagingService {
@@ -52,58 +41,64 @@ public class RNPushNotificationListenerService extends FirebaseMessagingService
         final FirebaseMessagingService serviceRef = (this.mFirebaseServiceDelegate == null) ? this : this.mFirebaseServiceDelegate;
         Log.d(LOG_TAG, "Refreshed token: " + deviceToken);
 
-        Handler handler = new Handler(Looper.getMainLooper());
-        handler.post(new Runnable() {
-            public void run() {
-                // Construct and load our normal React JS code bundle
-                final ReactInstanceManager mReactInstanceManager = ((ReactApplication)serviceRef.getApplication()).getReactNativeHost().getReactInstanceManager();
-                ReactContext context = mReactInstanceManager.getCurrentReactContext();
-                // If it's constructed, send a notification
-                if (context != null) {
-                    handleNewToken((ReactApplicationContext) context, deviceToken);
-                } else {
-                    // Otherwise wait for construction, then send the notification
-                    mReactInstanceManager.addReactInstanceEventListener(new ReactInstanceManager.ReactInstanceEventListener() {
-                        public void onReactContextInitialized(ReactContext context) {
-                            handleNewToken((ReactApplicationContext) context, deviceToken);
-                            mReactInstanceManager.removeReactInstanceEventListener(this);
-                        }
-                    });
-                    if (!mReactInstanceManager.hasStartedCreatingInitialContext()) {
-                        // Construct it in the background
-                        mReactInstanceManager.createReactContextInBackground();
-                    }
-                }
-            }
-        });
-    }
-
-    private void handleNewToken(ReactApplicationContext context, String token) {
-        RNPushNotificationJsDelivery jsDelivery = new RNPushNotificationJsDelivery(context);
+        // Queued until the React context exists
+        RNPushNotificationJsDelivery jsDelivery = new RNPushNotificationJsDelivery(serviceRef.getApplication());
 
-        WritableMap params = Arguments.createMap();
-        params.putString("deviceToken", token);
+        Bundle params = new Bundle();
+        params.putString("deviceToken", deviceToken);
         jsDelivery.sendEvent("remoteNotificationsRegistered", params);
     }
 
     @Override
     public void onMessageReceived(RemoteMessage message)
     {
-        mMessageReceivedHandler.handleReceivedMessage(message);
-    
-        // CHECK IF MESSAGE CONTAINS A DATA PAYLOAD.
-        if (message.getData().size() > 0) {
-            try
-            {
-                Log.d ("OnMessageFCM",message.getData ()+"");
-                JSONObject fcmData = new JSONObject (message.getData ());
-                if (fcmData.getString ("LKCallType").equals ("call") && fcmData.getBoolean ("updateFCMPR"))
-                {
-                    this.updateCallRequest (Integer.parseInt(fcmData.getString ("call_id")));
-                }
-            } catch (JSONException e)
-            {
-                e.printStackTrace ();
+        final FirebaseMessagingService serviceRef = (this.mFirebaseServiceDelegate == null) ? this : this.mFirebaseServiceDelegate;
+
+        RNPushNotificationMessageDeduplicator deduplicator = RNPushNotificationMessageDeduplicator.getInstance(serviceRef.getApplication());
+        String messageId = message.getMessageId();
+        long receivedAt = System.currentTimeMillis();
+
+        // FCM can deliver the same message again, it has already been shown and acknowledged
+        if (!deduplicator.begin(messageId, receivedAt)) {
+            Log.d(LOG_TAG, "Ignoring already handled message " + messageId);
+            return;
+        }
+
+        boolean handled = false;
+
+        try {
+            switch (RNPushNotificationMessageClassifier.getInstance(serviceRef.getApplication()).classify(message)) {
+                case RNPushNotificationMessageClassifier.TYPE_CALL:
+                    handleCallMessage(message);
+                    break;
+                case RNPushNotificationMessageClassifier.TYPE_CHAT:
+                    mMessageReceivedHandler.handleChatMessage(message);
+                    break;
+                case RNPushNotificationMessageClassifier.TYPE_SILENT:
+                    mMessageReceivedHandler.handleSilentMessage(message);
+                    break;
+                default:
+                    mMessageReceivedHandler.handleReceivedMessage(message);
+                    break;
+            }
+
+            handled = true;
+        } finally {
+            deduplicator.finish(messageId, receivedAt, handled);
+        }
+    }
+
+    private void handleCallMessage(RemoteMessage message) {
+        mMessageReceivedHandler.handleCallMessage(message);
+
+        Map<String, String> data = message.getData();
+        String callId = data.get("call_id");
+
+        if ("true".equalsIgnoreCase(data.get("updateFCMPR")) && callId != null) {
+            try {
+                this.updateCallRequest(Integer.parseInt(callId));
+            } catch (NumberFormatException e) {
+                Log.w(LOG_TAG, "Invalid call_id " + callId);
             }
         }
     }
@@ -159,26 +154,7 @@ public class RNPushNotificationListenerService extends FirebaseMessagingService
         {
             e.printStackTrace();
         }
-        String url = "https://letskinect.com/lkpserver/api/call/log/update";
-        Log.d ("updateDidMobileRing", url);
-        final JsonObjectRequest jsonObjectRequest = new JsonObjectRequest
-        ( Request.Method.POST, url, params, new Response.Listener<JSONObject>()
-        {
-            @Override
-            public void onResponse (JSONObject response)
-            {
-                Log.d("wasFCMPayloadReceived",response.toString ());
-            }
-        },new Response.ErrorListener()
-        {
-            @Override
-            public void onErrorResponse(VolleyError error)
-            {
-                Log.d("wasFCMPayloadReceived","Something went wrong. "+ error);
-            }
-        });
-        //VolleyController.getInstance(CallNotificationService.this).addToRequestQueue(jsonObjectRequest);
-        RequestQueue queue = Volley.newRequestQueue( getApplicationContext() );
-        queue.add(jsonObjectRequest);
+        // Sent through a shared queue, kept until the server has it
+        RNPushNotificationCallAckSender.getInstance(getApplicationContext()).send(params);
     }
 }
@@ -0,0 +1,89 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.firebase.messaging.RemoteMessage;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Tells which kind of remote message was received, from plain lookups in its data map.
+ *
+ * The kind comes from the value of a type key, "LKCallType" by default, through a routing table
+ * of value:kind pairs, "call:call,chat:chat" by default. Both are read from the manifest, see
+ * {@link RNPushNotificationConfig#getMessageTypeKey} and
+ * {@link RNPushNotificationConfig#getMessageRoutes}. Other data-only messages, which have
+ * nothing to show, are silent.
+ */
+class RNPushNotificationMessageClassifier {
+    static final int TYPE_DEFAULT = 0;
+    static final int TYPE_CALL = 1;
+    static final int TYPE_CHAT = 2;
+    static final int TYPE_SILENT = 3;
+
+    private static RNPushNotificationMessageClassifier sInstance;
+
+    private final String typeKey;
+    private final Map<String, Integer> routes = new HashMap<>();
+
+    static synchronized RNPushNotificationMessageClassifier getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RNPushNotificationMessageClassifier(new RNPushNotificationConfig(context));
+        }
+        return sInstance;
+    }
+
+    private RNPushNotificationMessageClassifier(RNPushNotificationConfig config) {
+        this.typeKey = config.getMessageTypeKey();
+
+        for (String route : config.getMessageRoutes().split(",")) {
+            int separator = route.indexOf(':');
+            int type = separator == -1 ? -1 : parseType(route.substring(separator + 1).trim());
+
+            if (type == -1) {
+                Log.w(LOG_TAG, "Invalid message route " + route);
+                continue;
+            }
+
+            routes.put(route.substring(0, separator).trim(), type);
+        }
+    }
+
+    int classify(RemoteMessage message) {
+        Map<String, String> data = message.getData();
+        String value = data.get(typeKey);
+
+        if (value != null) {
+            Integer type = routes.get(value);
+
+            if (type != null) {
+                return type;
+            }
+        }
+
+        if (message.getNotification() == null) {
+            return TYPE_SILENT;
+        }
+
+        return TYPE_DEFAULT;
+    }
+
+    private static int parseType(String name) {
+        switch (name) {
+            case "call":
+                return TYPE_CALL;
+            case "chat":
+                return TYPE_CHAT;
+            case "silent":
+                return TYPE_SILENT;
+            case "default":
+                return TYPE_DEFAULT;
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Remembers the ids of the last remote messages handled, so a message redelivered by FCM, after
+ * a process death or a network flap, is dropped before doing any work for it again. Ids are
+ * only recorded once the message has been handled, a redelivery arriving meanwhile is dropped
+ * too.
+ *
+ * Ids are kept for {@link #TTL} in a least recently seen window of {@link #CAPACITY} ids,
+ * persisted in an append-only file of (id, time) records that is rewritten once it holds
+ * twice as many records as the window.
+ */
+class RNPushNotificationMessageDeduplicator {
+    private static final String FILE_NAME = "rn_push_notification_message_ids";
+    private static final int CAPACITY = 256;
+    private static final long TTL = 24 * 60 * 60 * 1000L;
+
+    private static RNPushNotificationMessageDeduplicator sInstance;
+
+    private final File file;
+    private final LinkedHashMap<String, Long> seen = new LinkedHashMap<String, Long>(CAPACITY, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+    // Being handled, not recorded until done
+    private final Set<String> inFlight = new HashSet<>();
+    private int records;
+
+    static synchronized RNPushNotificationMessageDeduplicator getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RNPushNotificationMessageDeduplicator(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private RNPushNotificationMessageDeduplicator(Context context) {
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+        load();
+    }
+
+    /**
+     * Returns false when the message has already been handled within the window or is being
+     * handled right now, otherwise marks it as being handled and returns true. Messages
+     * without an id are always handled.
+     */
+    synchronized boolean begin(String messageId, long now) {
+        if (messageId == null) {
+            return true;
+        }
+
+        Long handledAt = seen.get(messageId);
+
+        if ((handledAt != null && now - handledAt < TTL) || inFlight.contains(messageId)) {
+            RNPushNotificationMetrics.INSTANCE.increment("messageDedupHits");
+            return false;
+        }
+
+        RNPushNotificationMetrics.INSTANCE.increment("messageDedupMisses");
+        inFlight.add(messageId);
+        return true;
+    }
+
+    /**
+     * Ends the handling started by {@link #begin}. The id is only recorded when the message
+     * was handled, so a redelivery of a message that failed is handled again.
+     */
+    synchronized void finish(String messageId, long now, boolean handled) {
+        if (messageId == null || !inFlight.remove(messageId) || !handled) {
+            return;
+        }
+
+        seen.put(messageId, now);
+        expire(now);
+
+        if (records + 1 >= 2 * CAPACITY) {
+            rewrite();
+        } else {
+            append(messageId, now);
+        }
+    }
+
+    private void expire(long now) {
+        // Least recently seen first, stopping at the first live id is enough to bound the window
+        for (Iterator<Long> iterator = seen.values().iterator(); iterator.hasNext(); ) {
+            if (now - iterator.next() < TTL) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+
+        DataInputStream in = null;
+
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+            while (true) {
+                String id;
+                long handledAt;
+
+                try {
+                    id = in.readUTF();
+                    handledAt = in.readLong();
+                } catch (EOFException e) {
+                    // End of the file, or a record cut short by a crash
+                    break;
+                }
+
+                seen.put(id, handledAt);
+                records++;
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Failed to read handled message ids", e);
+        } finally {
+            close(in);
+        }
+    }
+
+    private void append(String messageId, long handledAt) {
+        DataOutputStream out = null;
+
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            out.writeUTF(messageId);
+            out.writeLong(handledAt);
+            records++;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Failed to save handled message id", e);
+        } finally {
+            close(out);
+        }
+    }
+
+    private void rewrite() {
+        File rewritten = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(rewritten)));
+
+            for (Map.Entry<String, Long> entry : seen.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+
+            out.close();
+            out = null;
+
+            if (!rewritten.renameTo(file)) {
+                throw new IOException("Failed to rename " + rewritten);
+            }
+
+            records = seen.size();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Failed to rewrite handled message ids", e);
+        } finally {
+            close(out);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Ignored, nothing left to do with it
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide counters and timings for the notification pipeline, readable from JS through
+ * {@code getNotificationMetrics}.
+ */
+public class RNPushNotificationMetrics {
+    public static final RNPushNotificationMetrics INSTANCE = new RNPushNotificationMetrics();
+
+    private static class Timing {
+        long count;
+        long total;
+        long max;
+        long last;
+    }
+
+    private final Map<String, Long> counters = new HashMap<>();
+    private final Map<String, Timing> timings = new HashMap<>();
+
+    private RNPushNotificationMetrics() {
+    }
+
+    public synchronized void increment(String name) {
+        increment(name, 1);
+    }
+
+    public synchronized void increment(String name, long delta) {
+        Long value = counters.get(name);
+        counters.put(name, value == null ? delta : value + delta);
+    }
+
+    public synchronized void record(String name, long millis) {
+        Timing timing = timings.get(name);
+
+        if (timing == null) {
+            timing = new Timing();
+            timings.put(name, timing);
+        }
+
+        timing.count++;
+        timing.total += millis;
+        timing.last = millis;
+        timing.max = Math.max(timing.max, millis);
+    }
+
+    public synchronized long getCounter(String name) {
+        Long value = counters.get(name);
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * Counters are returned as numbers, timings as {count, totalMs, maxMs, lastMs}.
+     */
+    public synchronized WritableMap toWritableMap() {
+        WritableMap result = Arguments.createMap();
+
+        for (Map.Entry<String, Long> counter : counters.entrySet()) {
+            result.putDouble(counter.getKey(), counter.getValue());
+        }
+
+        for (Map.Entry<String, Timing> entry : timings.entrySet()) {
+            Timing timing = entry.getValue();
+            WritableMap map = Arguments.createMap();
+            map.putDouble("count", timing.count);
+            map.putDouble("totalMs", timing.total);
+            map.putDouble("maxMs", timing.max);
+            map.putDouble("lastMs", timing.last);
+            result.putMap(entry.getKey(), map);
+        }
+
+        return result;
+    }
+}
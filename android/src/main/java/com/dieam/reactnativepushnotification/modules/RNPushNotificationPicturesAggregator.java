@@ -2,27 +2,38 @@
 package com.dieam.reactnativepushnotification.modules;
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
 import android.graphics.Canvas;
-import android.graphics.Color;
+import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffXfermode;
-import android.graphics.Rect;
-import android.graphics.RectF;
+import android.graphics.Shader;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
 import android.util.Log;
+import android.util.LruCache;
 
 import com.facebook.common.executors.CallerThreadExecutor;
 import com.facebook.common.references.CloseableReference;
+import com.facebook.datasource.BaseDataSubscriber;
 import com.facebook.datasource.DataSource;
 import com.facebook.drawee.backends.pipeline.Fresco;
 import com.facebook.imagepipeline.common.Priority;
+import com.facebook.imagepipeline.common.ResizeOptions;
+import com.facebook.imagepipeline.core.ImagePipelineConfig;
 import com.facebook.imagepipeline.datasource.BaseBitmapDataSubscriber;
 import com.facebook.imagepipeline.image.CloseableImage;
 import com.facebook.imagepipeline.request.ImageRequest;
 import com.facebook.imagepipeline.request.ImageRequestBuilder;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import androidx.annotation.Nullable;
@@ -32,9 +43,63 @@ import static com.dieam.reactnativepushnotification.modules.RNPushNotification.L
 public class RNPushNotificationPicturesAggregator {
   interface Callback {
     public void call(Bitmap largeIconImage, Bitmap bigPictureImage, Bitmap bigLargeIconImage);
+
+    /**
+     * Called with the pictures so far each time one arrives after the deadline, once the
+     * notification has been posted without them.
+     */
+    public void update(Bitmap largeIconImage, Bitmap bigPictureImage, Bitmap bigLargeIconImage);
+  }
+
+  interface PrefetchCallback {
+    public void done(int prefetched, int failed);
+  }
+
+  private interface PictureListener {
+    void onPicture(@Nullable Bitmap bitmap);
+  }
+
+  private static class Slot {
+    final Uri uri;
+    final int width;
+    final int height;
+    final PictureListener listener;
+
+    Slot(Uri uri, int width, int height, PictureListener listener) {
+      this.uri = uri;
+      this.width = width;
+      this.height = height;
+      this.listener = listener;
+    }
+  }
+
+  private static class Fetch {
+    final List<PictureListener> listeners = new ArrayList<>();
+    boolean done;
+    Bitmap bitmap;
   }
 
+  // Largest width of the picture in an expanded notification
+  private static final int BIG_PICTURE_MAX_WIDTH_DP = 450;
+  // Bitmaps go to the notification manager in a parcel, large ones can make the call fail
+  static final long BYTE_BUDGET = 3 * 1024 * 1024;
+
+  // Circle cropped large icons by url and size, so the usual senders are drawn once
+  private static final LruCache<String, Bitmap> CIRCLE_CACHE = new LruCache<String, Bitmap>(2 * 1024 * 1024) {
+    @Override
+    protected int sizeOf(String key, Bitmap value) {
+      return value.getByteCount();
+    }
+  };
+  private static final Paint CIRCLE_PAINT = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+  private static final Matrix CIRCLE_MATRIX = new Matrix();
+  private static final Canvas CIRCLE_CANVAS = new Canvas();
+
   private AtomicInteger count = new AtomicInteger(0);
+  private final Map<Uri, Fetch> fetches = new HashMap<>();
+  private final List<Slot> slots = new ArrayList<>();
+  private Context context;
+  private boolean started;
 
   private Bitmap largeIconImage;
   private Bitmap bigPictureImage;
@@ -42,10 +107,34 @@ public class RNPushNotificationPicturesAggregator {
 
   private Callback callback;
 
+  private final long start = SystemClock.elapsedRealtime();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private boolean downloading;
+  private boolean posted;
+  private Bitmap postedLargeIconImage;
+  private Bitmap postedBigPictureImage;
+  private Bitmap postedBigLargeIconImage;
+
+  private final Runnable deadline = new Runnable() {
+    public void run() {
+      expired();
+    }
+  };
+
   public RNPushNotificationPicturesAggregator(Callback callback) {
     this.callback = callback;
   }
 
+  /**
+   * Posts the notification with the pictures downloaded so far once the deadline is reached,
+   * instead of waiting for all of them. To be called before setting the urls, 0 waits forever.
+   */
+  public void setDeadline(long deadlineMs) {
+    if (deadlineMs > 0) {
+      handler.postDelayed(deadline, deadlineMs);
+    }
+  }
+
   public void setBigPicture(Bitmap bitmap) {
     this.bigPictureImage = bitmap;
     this.finished();
@@ -69,45 +158,41 @@ public class RNPushNotificationPicturesAggregator {
 
     final RNPushNotificationPicturesAggregator aggregator = this;
 
-    this.downloadRequest(context, uri, new BaseBitmapDataSubscriber() {
-      @Override
-      public void onNewResultImpl(@Nullable Bitmap bitmap) {
-        aggregator.setBigPicture(bitmap);
-      }
+    int[] size = bigPictureSize(context);
 
-      @Override
-      public void onFailureImpl(DataSource dataSource) {
-        aggregator.setBigPicture(null);
+    this.request(context, uri, size[0], size[1], new PictureListener() {
+      public void onPicture(@Nullable Bitmap bitmap) {
+        aggregator.setBigPicture(bitmap);
       }
     });
   }
   
   // QZ: CUSTOM FUNCTION TO MAKE CIRCULAR NOTIFICATION IMAGE.
+  /**
+   * Returns a copy of the picture cropped to a circle, centered on it. The picture is drawn
+   * through a shader with drawing objects shared by all calls, so it should already be scaled
+   * down to the icon size.
+   */
   public Bitmap getCircleBitmap(Bitmap bitmap)
   {
-    final Bitmap output = Bitmap.createBitmap(bitmap.getWidth(),
-        bitmap.getHeight(), Bitmap.Config.ARGB_8888);
-    final Canvas canvas = new Canvas(output);
-    
-    final int color = Color.RED;
-    final Paint paint = new Paint ();
-    final Rect rect = new Rect (0, 0, bitmap.getWidth(), bitmap.getHeight());
-    final RectF rectF = new RectF (rect);
-    
-    paint.setAntiAlias (true);
-    canvas.drawARGB (0, 0, 0, 0);
-    paint.setColor (color);
-    canvas.drawOval (rectF, paint);
-    
-    paint.setXfermode(new PorterDuffXfermode (PorterDuff.Mode.SRC_IN));
-    canvas.drawBitmap(bitmap, rect, rect, paint);
-  
-    // IF BITMAP IS NOT RECYCLED THEN RECYCLE IT NOW.
-    if (bitmap != null && !bitmap.isRecycled())
-    {
-      //bitmap.recycle();
-      bitmap = null;
+    int size = Math.min(bitmap.getWidth(), bitmap.getHeight());
+    Bitmap output = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+
+    synchronized(CIRCLE_PAINT) {
+      BitmapShader shader = new BitmapShader(bitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+
+      CIRCLE_MATRIX.setTranslate((size - bitmap.getWidth()) / 2f, (size - bitmap.getHeight()) / 2f);
+      shader.setLocalMatrix(CIRCLE_MATRIX);
+      CIRCLE_PAINT.setShader(shader);
+
+      CIRCLE_CANVAS.setBitmap(output);
+      CIRCLE_CANVAS.drawCircle(size / 2f, size / 2f, size / 2f, CIRCLE_PAINT);
+
+      // Not holding on to either bitmap
+      CIRCLE_CANVAS.setBitmap(null);
+      CIRCLE_PAINT.setShader(null);
     }
+
     return output;
   }
 
@@ -135,17 +220,30 @@ public class RNPushNotificationPicturesAggregator {
 
     final RNPushNotificationPicturesAggregator aggregator = this;
 
-    this.downloadRequest(context, uri, new BaseBitmapDataSubscriber() {
-      @Override
-      public void onNewResultImpl(@Nullable Bitmap bitmap) {
-        // QZ: CUSTOM LINE ADDED.
-        bitmap = aggregator.getCircleBitmap (bitmap);
-        aggregator.setLargeIcon(bitmap);
-      }
+    int[] size = largeIconSize(context);
+    final String key = url + "@" + size[0] + "x" + size[1];
+    Bitmap cached = CIRCLE_CACHE.get(key);
 
-      @Override
-      public void onFailureImpl(DataSource dataSource) {
-        aggregator.setLargeIcon(null);
+    if(cached != null) {
+      RNPushNotificationMetrics.INSTANCE.increment("largeIconCacheHits");
+      this.setLargeIcon(cached);
+      return;
+    }
+
+    RNPushNotificationMetrics.INSTANCE.increment("largeIconCacheMisses");
+
+    this.request(context, uri, size[0], size[1], new PictureListener() {
+      public void onPicture(@Nullable Bitmap bitmap) {
+        Bitmap circle = null;
+
+        if(bitmap != null) {
+          // QZ: CUSTOM LINE ADDED.
+          // A copy, the picture can be shared with the other slots
+          circle = aggregator.getCircleBitmap(bitmap);
+          CIRCLE_CACHE.put(key, circle);
+        }
+
+        aggregator.setLargeIcon(circle);
       }
     });
   }
@@ -173,42 +271,383 @@ public class RNPushNotificationPicturesAggregator {
 
     final RNPushNotificationPicturesAggregator aggregator = this;
 
-    this.downloadRequest(context, uri, new BaseBitmapDataSubscriber() {
+    int[] size = largeIconSize(context);
+
+    this.request(context, uri, size[0], size[1], new PictureListener() {
+      public void onPicture(@Nullable Bitmap bitmap) {
+        aggregator.setBigLargeIcon(bitmap);
+      }
+    });
+  }
+
+  /**
+   * Fetches start once every slot is known, so that a picture shared by several slots is
+   * decoded at the size of the largest one. Each slot gets it scaled down to its own size.
+   */
+  private void request(Context context, Uri uri, int width, int height, PictureListener listener) {
+    synchronized(this.fetches) {
+      this.context = context;
+      this.slots.add(new Slot(uri, width, height, listener));
+    }
+
+    this.startWhenComplete();
+  }
+
+  private void startWhenComplete() {
+    List<Slot> requested;
+    Context context;
+
+    synchronized(this.fetches) {
+      if(this.started || this.slots.size() + this.count.get() < 3) {
+        return;
+      }
+
+      this.started = true;
+      requested = new ArrayList<>(this.slots);
+      this.slots.clear();
+      context = this.context;
+    }
+
+    Map<Uri, int[]> sizes = new HashMap<>();
+
+    for(Slot slot : requested) {
+      int[] size = sizes.get(slot.uri);
+
+      if(size == null) {
+        sizes.put(slot.uri, new int[]{slot.width, slot.height});
+      } else {
+        size[0] = Math.max(size[0], slot.width);
+        size[1] = Math.max(size[1], slot.height);
+      }
+    }
+
+    for(final Slot slot : requested) {
+      this.fetch(context, slot.uri, sizes.get(slot.uri), new PictureListener() {
+        public void onPicture(@Nullable Bitmap bitmap) {
+          slot.listener.onPicture(bitmap != null ? scaleToFit(bitmap, slot.width, slot.height) : null);
+        }
+      });
+    }
+  }
+
+  /**
+   * Fetches and decodes each picture once, whatever the number of slots it is used for, the
+   * slots then derive their own copy from it if needed.
+   */
+  private void fetch(Context context, Uri uri, int[] size, PictureListener listener) {
+    final Fetch fetch;
+    Bitmap fetched = null;
+
+    synchronized(this.fetches) {
+      Fetch existing = this.fetches.get(uri);
+
+      if(existing == null) {
+        fetch = new Fetch();
+        fetch.listeners.add(listener);
+        this.fetches.put(uri, fetch);
+      } else {
+        RNPushNotificationMetrics.INSTANCE.increment("notificationPicturesShared");
+
+        if(!existing.done) {
+          existing.listeners.add(listener);
+          return;
+        }
+
+        fetch = null;
+        fetched = existing.bitmap;
+      }
+    }
+
+    if(fetch == null) {
+      // Already there, fetched synchronously from the memory cache
+      listener.onPicture(fetched);
+      return;
+    }
+
+    final RNPushNotificationPicturesAggregator aggregator = this;
+
+    this.downloadRequest(context, uri, size, new BaseBitmapDataSubscriber() {
       @Override
       public void onNewResultImpl(@Nullable Bitmap bitmap) {
-        aggregator.setBigLargeIcon(bitmap);
+        // Fresco recycles the bitmap once this returns, it is kept and can be handed over as is
+        aggregator.fetched(fetch, bitmap != null ? copy(bitmap) : null);
       }
 
       @Override
       public void onFailureImpl(DataSource dataSource) {
-        aggregator.setBigLargeIcon(null);
+        aggregator.fetched(fetch, null);
       }
     });
   }
 
-  private void downloadRequest(Context context, Uri uri, BaseBitmapDataSubscriber subscriber) {
-    ImageRequest imageRequest = ImageRequestBuilder
+  private void fetched(Fetch fetch, @Nullable Bitmap bitmap) {
+    List<PictureListener> listeners;
+
+    synchronized(this.fetches) {
+      fetch.done = true;
+      fetch.bitmap = bitmap;
+      listeners = new ArrayList<>(fetch.listeners);
+      fetch.listeners.clear();
+    }
+
+    for(PictureListener listener : listeners) {
+      listener.onPicture(bitmap);
+    }
+  }
+
+  /**
+   * Downloads the pictures to the disk cache used for notifications, so they don't have to be
+   * fetched from the network when a notification shows them. They are only decoded and resized
+   * then: the slot a picture goes to isn't known yet, and decoded pictures don't outlive the
+   * process. Invalid urls count as failed.
+   */
+  public static void prefetch(Context context, List<String> urls, final PrefetchCallback callback) {
+    final int total = urls.size();
+
+    if(total == 0) {
+      callback.done(0, 0);
+      return;
+    }
+
+    initializeFresco(context);
+
+    final AtomicInteger remaining = new AtomicInteger(total);
+    final AtomicInteger failed = new AtomicInteger(0);
+
+    for(String url : urls) {
+      Uri uri = url != null ? Uri.parse(url) : null;
+
+      if(uri == null || uri.getScheme() == null) {
+        Log.e(LOG_TAG, "Failed to parse prefetched picture url " + url);
+        prefetched(false, total, remaining, failed, callback);
+        continue;
+      }
+
+      DataSource<Void> dataSource = Fresco.getImagePipeline().prefetchToDiskCache(buildRequest(uri, Priority.LOW, null), context);
+
+      dataSource.subscribe(new BaseDataSubscriber<Void>() {
+        @Override
+        protected void onNewResultImpl(DataSource<Void> dataSource) {
+          if(dataSource.isFinished()) {
+            prefetched(true, total, remaining, failed, callback);
+          }
+        }
+
+        @Override
+        protected void onFailureImpl(DataSource<Void> dataSource) {
+          prefetched(false, total, remaining, failed, callback);
+        }
+      }, CallerThreadExecutor.getInstance());
+    }
+  }
+
+  private static void prefetched(boolean success, int total, AtomicInteger remaining, AtomicInteger failed, PrefetchCallback callback) {
+    if(!success) {
+      failed.incrementAndGet();
+    }
+
+    if(remaining.decrementAndGet() == 0) {
+      RNPushNotificationMetrics.INSTANCE.increment("notificationPicturesPrefetched", total - failed.get());
+      callback.done(total - failed.get(), failed.get());
+    }
+  }
+
+  /**
+   * Notification pictures go to the small images disk cache, apart from the app's own images.
+   */
+  private static ImageRequest buildRequest(Uri uri, Priority priority, @Nullable ResizeOptions resizeOptions) {
+    return ImageRequestBuilder
       .newBuilderWithSource(uri)
-      .setRequestPriority(Priority.HIGH)
+      .setCacheChoice(ImageRequest.CacheChoice.SMALL)
+      .setResizeOptions(resizeOptions)
+      .setRequestPriority(priority)
       .setLowestPermittedRequestLevel(ImageRequest.RequestLevel.FULL_FETCH)
       .build();
+  }
 
-    if(!Fresco.hasBeenInitialized()) {
-      Fresco.initialize(context);
+  private void downloadRequest(Context context, Uri uri, int[] size, BaseBitmapDataSubscriber subscriber) {
+    synchronized(this.count) {
+      this.downloading = true;
     }
 
+    ImageRequest imageRequest = buildRequest(uri, Priority.HIGH, new ResizeOptions(size[0], size[1]));
+
+    initializeFresco(context);
+
     DataSource<CloseableReference<CloseableImage>> dataSource = Fresco.getImagePipeline().fetchDecodedImage(imageRequest, context);
 
     dataSource.subscribe(subscriber, CallerThreadExecutor.getInstance());
   }
 
+  /**
+   * Pictures are only downsampled while decoding when it is enabled, they are scaled down
+   * afterwards otherwise.
+   */
+  private static void initializeFresco(Context context) {
+    if(!Fresco.hasBeenInitialized()) {
+      Fresco.initialize(context, ImagePipelineConfig.newBuilder(context).setDownsampleEnabled(true).build());
+    }
+  }
+
+  private static int[] largeIconSize(Context context) {
+    Resources res = context.getResources();
+
+    return new int[]{
+      res.getDimensionPixelSize(android.R.dimen.notification_large_icon_width),
+      res.getDimensionPixelSize(android.R.dimen.notification_large_icon_height)
+    };
+  }
+
+  private static int[] bigPictureSize(Context context) {
+    DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+    int width = Math.min(metrics.widthPixels, Math.round(BIG_PICTURE_MAX_WIDTH_DP * metrics.density));
+
+    // Not limited to the 2:1 of the expanded notification, it crops pictures to fit
+    return new int[]{width, width};
+  }
+
+  static Bitmap scaleToFit(Bitmap bitmap, int maxWidth, int maxHeight) {
+    int[] size = fitSize(bitmap.getWidth(), bitmap.getHeight(), maxWidth, maxHeight);
+
+    if(size[0] == bitmap.getWidth() && size[1] == bitmap.getHeight()) {
+      return bitmap;
+    }
+
+    return Bitmap.createScaledBitmap(bitmap, size[0], size[1], true);
+  }
+
+  private static Bitmap scale(Bitmap bitmap, double factor) {
+    int[] size = scaledSize(bitmap.getWidth(), bitmap.getHeight(), factor);
+
+    return Bitmap.createScaledBitmap(bitmap, size[0], size[1], true);
+  }
+
+  /**
+   * Size of a picture scaled down to fit in the given size, keeping its aspect ratio, or its
+   * own size when it already fits.
+   */
+  static int[] fitSize(int width, int height, int maxWidth, int maxHeight) {
+    if(width <= maxWidth && height <= maxHeight) {
+      return new int[]{width, height};
+    }
+
+    double factor = Math.min((double) maxWidth / width, (double) maxHeight / height);
+
+    return new int[]{
+      Math.max(1, Math.min(maxWidth, (int) Math.round(width * factor))),
+      Math.max(1, Math.min(maxHeight, (int) Math.round(height * factor)))
+    };
+  }
+
+  /**
+   * Factor scaling both sides of pictures taking the given bytes down to the budget, 1 when
+   * they fit in it.
+   */
+  static double budgetFactor(long bytes, long budget) {
+    return bytes > budget ? Math.sqrt((double) budget / bytes) : 1;
+  }
+
+  /**
+   * Size of a picture scaled by the factor. Rounded down, so pictures scaled by the budget
+   * factor stay within the budget.
+   */
+  static int[] scaledSize(int width, int height, double factor) {
+    return new int[]{
+      Math.max(1, (int) (width * factor)),
+      Math.max(1, (int) (height * factor))
+    };
+  }
+
+  private static Bitmap copy(Bitmap bitmap) {
+    Bitmap.Config config = bitmap.getConfig();
+    return bitmap.copy(config != null ? config : Bitmap.Config.ARGB_8888, false);
+  }
+
+  private static long byteCount(Bitmap bitmap) {
+    return bitmap != null ? bitmap.getByteCount() : 0;
+  }
+
+  /**
+   * Hands the pictures over, scaled down together if they go over the byte budget.
+   */
+  private void post(boolean update) {
+    Bitmap largeIcon = this.largeIconImage;
+    Bitmap bigPicture = this.bigPictureImage;
+    Bitmap bigLargeIcon = this.bigLargeIconImage;
+    double factor = budgetFactor(byteCount(largeIcon) + byteCount(bigPicture) + byteCount(bigLargeIcon), BYTE_BUDGET);
+
+    if(factor < 1) {
+      largeIcon = largeIcon != null ? scale(largeIcon, factor) : null;
+      bigPicture = bigPicture != null ? scale(bigPicture, factor) : null;
+      bigLargeIcon = bigLargeIcon != null ? scale(bigLargeIcon, factor) : null;
+
+      RNPushNotificationMetrics.INSTANCE.increment("notificationPicturesOverBudget");
+    }
+
+    if(update) {
+      this.callback.update(largeIcon, bigPicture, bigLargeIcon);
+    } else {
+      this.callback.call(largeIcon, bigPicture, bigLargeIcon);
+    }
+  }
+
   private void finished() {
     synchronized(this.count) {
       int val = this.count.incrementAndGet();
 
-      if(val >= 3 && this.callback != null) {
-        this.callback.call(this.largeIconImage, this.bigPictureImage, this.bigLargeIconImage);
+      if(val < 3) {
+        this.startWhenComplete();
+      } else {
+        handler.removeCallbacks(deadline);
+
+        if(this.downloading) {
+          RNPushNotificationMetrics.INSTANCE.record("notificationPictures", SystemClock.elapsedRealtime() - start);
+        }
       }
+
+      if(this.callback == null) {
+        return;
+      }
+
+      if(!this.posted) {
+        if(val < 3) {
+          return;
+        }
+
+        this.posted = true;
+        this.keepPosted();
+        RNPushNotificationMetrics.INSTANCE.record("notificationFirstPost", SystemClock.elapsedRealtime() - start);
+        this.post(false);
+      } else if(this.largeIconImage != this.postedLargeIconImage
+          || this.bigPictureImage != this.postedBigPictureImage
+          || this.bigLargeIconImage != this.postedBigLargeIconImage) {
+        // Posted at the deadline, each picture arriving later updates it, nothing to update otherwise
+        this.keepPosted();
+        this.post(true);
+      }
+    }
+  }
+
+  private void keepPosted() {
+    this.postedLargeIconImage = this.largeIconImage;
+    this.postedBigPictureImage = this.bigPictureImage;
+    this.postedBigLargeIconImage = this.bigLargeIconImage;
+  }
+
+  private void expired() {
+    synchronized(this.count) {
+      if(this.posted || this.count.get() >= 3 || this.callback == null) {
+        return;
+      }
+
+      Log.w(LOG_TAG, "Notification pictures are taking too long, posting the notification without them");
+
+      this.posted = true;
+      this.keepPosted();
+
+      RNPushNotificationMetrics.INSTANCE.increment("notificationPicturesTimeouts");
+      RNPushNotificationMetrics.INSTANCE.record("notificationFirstPost", SystemClock.elapsedRealtime() - start);
+      this.post(false);
     }
   }
 }
\ No newline at end of file
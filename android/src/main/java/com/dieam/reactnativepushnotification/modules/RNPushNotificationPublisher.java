@@ -7,6 +7,7 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
 
+import java.util.Collections;
 import java.util.List;
 import java.security.SecureRandom;
 
@@ -17,18 +18,71 @@ public class RNPushNotificationPublisher extends BroadcastReceiver {
 
     @Override
     public void onReceive(final Context context, Intent intent) {
-        int id = intent.getIntExtra(NOTIFICATION_ID, 0);
         long currentTime = System.currentTimeMillis();
 
+        if (RNPushNotificationScheduler.ACTION_DRAIN.equals(intent.getAction())) {
+            Log.i(LOG_TAG, "NotificationPublisher: Draining due notifications, Now Time: " + currentTime);
+
+            drainScheduledNotifications(context, currentTime);
+            return;
+        }
+
+        int id = intent.getIntExtra(NOTIFICATION_ID, 0);
+
         Log.i(LOG_TAG, "NotificationPublisher: Prepare To Publish: " + id + ", Now Time: " + currentTime);
 
         final Bundle bundle = intent.getExtras();
 
         Log.v(LOG_TAG, "onMessageReceived: " + bundle);
 
+        // Alarms armed per notification by earlier versions can still go off after an upgrade if
+        // they couldn't be cancelled when migrating. The entry is still in the store unless it
+        // was cancelled or already drained, and has another fire date once a repeating
+        // notification was posted by the drain alarm.
+        String notificationId = bundle.getString("id");
+        if (notificationId != null) {
+            RNPushNotificationStore store = RNPushNotificationStore.getInstance(context);
+
+            if (store.getFireDate(notificationId) != (long) bundle.getDouble("fireDate")
+                    || !RNPushNotificationScheduler.getInstance(context).claim(notificationId)) {
+                Log.i(LOG_TAG, "NotificationPublisher: Skipping " + notificationId + ", no longer scheduled");
+                return;
+            }
+        }
+
         handleLocalNotification(context, bundle);
     }
 
+    private void drainScheduledNotifications(Context context, long now) {
+        RNPushNotificationStore store = RNPushNotificationStore.getInstance(context);
+        RNPushNotificationScheduler scheduler = RNPushNotificationScheduler.getInstance(context);
+
+        List<String> due = scheduler.takeDue(now);
+
+        for (String id : due) {
+            byte[] payload = store.get(id);
+            if (payload == null) {
+                // Cancelled meanwhile
+                scheduler.release(Collections.singleton(id));
+                continue;
+            }
+
+            try {
+                handleLocalNotification(context, RNPushNotificationAttributes.fromBytes(payload).toBundle());
+            } catch (Exception e) {
+                Log.e(LOG_TAG, "Problem publishing scheduled notification " + id, e);
+
+                // Would fail the same way if drained again, the alarm is re-armed below. Kept
+                // claimed if it can't be removed, instead of firing again right away.
+                if (store.remove(id)) {
+                    scheduler.release(Collections.singleton(id));
+                }
+            }
+        }
+
+        scheduler.arm();
+    }
+
     private void handleLocalNotification(Context context, Bundle bundle) {
 
         // If notification ID is not provided by the user for push notification, generate one at random
@@ -39,9 +93,9 @@ public class RNPushNotificationPublisher extends BroadcastReceiver {
 
         Application applicationContext = (Application) context.getApplicationContext();
         RNPushNotificationHelper pushNotificationHelper = new RNPushNotificationHelper(applicationContext);
-        
+
         Log.v(LOG_TAG, "sendNotification: " + bundle);
 
         pushNotificationHelper.sendToNotificationCentre(bundle);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,298 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import java.util.TimeZone;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Computes the next occurrence of a repeating notification.
+ *
+ * A rule is a unit ("time", "minute", "hour", "day", "week" or "month") and an interval of
+ * that unit, optionally limited to some weekdays (weekly rules only), an end date and a total
+ * number of occurrences. Day, week and month rules keep the local time of day across DST
+ * changes, like {@link java.util.Calendar} did.
+ *
+ * {@link #next} jumps straight to the first occurrence after now with plain arithmetic on
+ * epoch days, instead of stepping through every missed occurrence, and allocates nothing.
+ */
+class RNPushNotificationRecurrence {
+    static final long NONE = -1;
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    static final int UNIT_TIME = 0;
+    static final int UNIT_MINUTE = 1;
+    static final int UNIT_HOUR = 2;
+    static final int UNIT_DAY = 3;
+    static final int UNIT_WEEK = 4;
+    static final int UNIT_MONTH = 5;
+
+    private static final int ALL_WEEKDAYS = 0x7F;
+
+    private final int unit;
+    private final long interval;
+    // Bit 0 is Sunday, as with Date.getDay() in JS. 0 means the weekday of the first occurrence
+    private final int weekdays;
+    // Inclusive, 0 means no end date
+    private final long until;
+    // Total number of occurrences, 0 means unlimited
+    private final long count;
+
+    private long occurrence;
+
+    RNPushNotificationRecurrence(int unit, long interval, int weekdays, long until, long count) {
+        this.unit = unit;
+        this.interval = interval;
+        this.weekdays = weekdays & ALL_WEEKDAYS;
+        this.until = until;
+        this.count = count;
+    }
+
+    /**
+     * Reads the rule from the notification's repeat attributes, returns null when it doesn't
+     * repeat or the rule is invalid.
+     */
+    static RNPushNotificationRecurrence fromBundle(Bundle bundle) {
+        String repeatType = bundle.getString("repeatType");
+
+        if (repeatType == null) {
+            return null;
+        }
+
+        long repeatTime = (long) bundle.getDouble("repeatTime");
+        int unit;
+
+        switch (repeatType) {
+            case "time":
+                unit = UNIT_TIME;
+                break;
+            case "minute":
+                unit = UNIT_MINUTE;
+                break;
+            case "hour":
+                unit = UNIT_HOUR;
+                break;
+            case "day":
+                unit = UNIT_DAY;
+                break;
+            case "week":
+                unit = UNIT_WEEK;
+                break;
+            case "month":
+                unit = UNIT_MONTH;
+                break;
+            default:
+                Log.w(LOG_TAG, "Invalid repeatType specified as " + repeatType);
+                return null;
+        }
+
+        if (unit == UNIT_TIME && repeatTime <= 0) {
+            Log.w(LOG_TAG, "repeatType specified as time but no repeatTime has been mentioned");
+            return null;
+        }
+
+        int weekdays = unit == UNIT_WEEK ? (int) bundle.getDouble("repeatWeekdays") : 0;
+
+        return new RNPushNotificationRecurrence(
+                unit,
+                repeatTime > 0 ? repeatTime : 1,
+                weekdays,
+                (long) bundle.getDouble("repeatUntil"),
+                (long) bundle.getDouble("repeatCount"));
+    }
+
+    /**
+     * Returns the first occurrence after both {@code previous} and {@code now}, or
+     * {@link #NONE} once the rule has ended. {@code previousOccurrence} is the 1-based index of
+     * the occurrence at {@code previous}, the index of the returned one is then available from
+     * {@link #getOccurrence}. Occurrences skipped over count towards the total.
+     */
+    long next(long previous, long previousOccurrence, long now, TimeZone timeZone) {
+        long after = Math.max(previous, now);
+        long next;
+        long steps;
+
+        if (unit == UNIT_TIME || unit == UNIT_MINUTE || unit == UNIT_HOUR) {
+            long period = unit == UNIT_TIME ? interval : interval * (unit == UNIT_MINUTE ? MINUTE : HOUR);
+            steps = (after - previous) / period + 1;
+            next = previous + steps * period;
+        } else {
+            long localPrevious = previous + timeZone.getOffset(previous);
+            long previousDay = floorDiv(localPrevious, DAY);
+            long timeOfDay = localPrevious - previousDay * DAY;
+            long nowDay = floorDiv(now + timeZone.getOffset(now), DAY);
+
+            if (unit == UNIT_MONTH) {
+                long civil = civilFromDays(previousDay);
+                long previousMonth = (civil >> 9) * 12 + ((civil >> 5) & 0xF) - 1;
+                int dayOfMonth = (int) (civil & 0x1F);
+                long nowMonth = civilMonthIndex(nowDay);
+
+                steps = Math.max(1, (nowMonth - previousMonth) / interval);
+                next = toUtc(monthDay(previousMonth + steps * interval, dayOfMonth) * DAY + timeOfDay, timeZone);
+
+                while (next <= after) {
+                    steps++;
+                    next = toUtc(monthDay(previousMonth + steps * interval, dayOfMonth) * DAY + timeOfDay, timeZone);
+                }
+            } else if (unit == UNIT_WEEK && weekdays != 0) {
+                long anchorWeek = previousDay - dayOfWeek(previousDay);
+                long day = nextWeekday(anchorWeek, Math.max(previousDay + 1, nowDay));
+                next = toUtc(day * DAY + timeOfDay, timeZone);
+
+                while (next <= after) {
+                    day = nextWeekday(anchorWeek, day + 1);
+                    next = toUtc(day * DAY + timeOfDay, timeZone);
+                }
+
+                steps = weekdaysUpTo(anchorWeek, day) - weekdaysUpTo(anchorWeek, previousDay);
+            } else {
+                long period = unit == UNIT_WEEK ? 7 * interval : interval;
+
+                steps = Math.max(1, (nowDay - previousDay) / period);
+                next = toUtc((previousDay + steps * period) * DAY + timeOfDay, timeZone);
+
+                while (next <= after) {
+                    steps++;
+                    next = toUtc((previousDay + steps * period) * DAY + timeOfDay, timeZone);
+                }
+            }
+        }
+
+        occurrence = Math.max(previousOccurrence, 1) + steps;
+
+        if ((until > 0 && next > until) || (count > 0 && occurrence > count)) {
+            return NONE;
+        }
+
+        return next;
+    }
+
+    long getOccurrence() {
+        return occurrence;
+    }
+
+    /**
+     * First day at or after {@code from} that is one of the weekdays, in a week that is a
+     * multiple of the interval away from the anchor week.
+     */
+    private long nextWeekday(long anchorWeek, long from) {
+        long week = (from - anchorWeek) / 7;
+        int fromWeekday = (int) (from - anchorWeek - week * 7);
+        long offset = week % interval;
+
+        if (offset != 0) {
+            week += interval - offset;
+            fromWeekday = 0;
+        }
+
+        int candidates = weekdays & (ALL_WEEKDAYS << fromWeekday) & ALL_WEEKDAYS;
+
+        if (candidates == 0) {
+            week += interval;
+            candidates = weekdays;
+        }
+
+        return anchorWeek + week * 7 + Integer.numberOfTrailingZeros(candidates);
+    }
+
+    /**
+     * Number of occurrences from the anchor week up to and including the given day.
+     */
+    private long weekdaysUpTo(long anchorWeek, long day) {
+        long week = (day - anchorWeek) / 7;
+        int weekday = (int) (day - anchorWeek - week * 7);
+        long fullWeeks = (week + interval - 1) / interval;
+        long count = fullWeeks * Integer.bitCount(weekdays);
+
+        if (week % interval == 0) {
+            count += Integer.bitCount(weekdays & ((2 << weekday) - 1));
+        }
+
+        return count;
+    }
+
+    /**
+     * Resolves a local time like a lenient Calendar does: a time skipped when DST starts is
+     * read with the offset before the change, so 02:22 becomes 03:22, and a time that happens
+     * twice when DST ends is the later one, in standard time.
+     */
+    private static long toUtc(long local, TimeZone timeZone) {
+        // A zone changes its offset at most once within a day on each side
+        long approximate = local - timeZone.getRawOffset();
+        int before = timeZone.getOffset(approximate - DAY);
+        int after = timeZone.getOffset(approximate + DAY);
+        long utc = local - after;
+
+        return timeZone.getOffset(utc) == after ? utc : local - before;
+    }
+
+    private static int dayOfWeek(long epochDay) {
+        // 1970-01-01 was a Thursday
+        return (int) floorMod(epochDay + 4, 7);
+    }
+
+    private static long civilMonthIndex(long epochDay) {
+        long civil = civilFromDays(epochDay);
+        return (civil >> 9) * 12 + ((civil >> 5) & 0xF) - 1;
+    }
+
+    /**
+     * Epoch day of the given day of a month index (year * 12 + month - 1), clamped to the
+     * length of that month.
+     */
+    private static long monthDay(long monthIndex, int dayOfMonth) {
+        long year = floorDiv(monthIndex, 12);
+        int month = (int) floorMod(monthIndex, 12) + 1;
+        return daysFromCivil(year, month, Math.min(dayOfMonth, daysInMonth(year, month)));
+    }
+
+    private static int daysInMonth(long year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    // Proleptic Gregorian conversions, see http://howardhinnant.github.io/date_algorithms.html
+
+    private static long daysFromCivil(long year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Returns (year << 9) | (month << 5) | day.
+     */
+    private static long civilFromDays(long epochDay) {
+        long z = epochDay + 719468;
+        long era = floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (year << 9) | (month << 5) | day;
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && ((x ^ y) < 0)) ? q - 1 : q;
+    }
+
+    private static long floorMod(long x, long y) {
+        return x - floorDiv(x, y) * y;
+    }
+}
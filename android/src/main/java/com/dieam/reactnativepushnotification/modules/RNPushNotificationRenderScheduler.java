@@ -0,0 +1,162 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Orders the remote notifications waiting to be rendered by priority.
+ *
+ * Each notification is put in a lane: calls first, then chat messages, then regular
+ * notifications, then bulk ones (low or min priority, or on one of the channels listed in the
+ * manifest, see {@link RNPushNotificationConfig#getBulkChannelIds}). Tasks run on the main thread one per
+ * message, always from the first lane that has one, so a call received during a burst of
+ * pushes is rendered next instead of after all of them.
+ *
+ * The time spent queued is recorded per lane in the metrics, as renderQueued.call,
+ * renderQueued.chat, renderQueued.default and renderQueued.bulk.
+ */
+class RNPushNotificationRenderScheduler {
+    static final int LANE_CALL = 0;
+    static final int LANE_CHAT = 1;
+    static final int LANE_DEFAULT = 2;
+    static final int LANE_BULK = 3;
+
+    private static final String[] LANE_NAMES = {"call", "chat", "default", "bulk"};
+
+    private static RNPushNotificationRenderScheduler sInstance;
+
+    private static class Task {
+        final Runnable runnable;
+        final long queuedAt;
+
+        Task(Runnable runnable, long queuedAt) {
+            this.runnable = runnable;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Set<String> bulkChannelIds = new HashSet<>();
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<Task>[] lanes = new ArrayDeque[LANE_NAMES.length];
+    private boolean drainScheduled;
+
+    private final Runnable drain = new Runnable() {
+        public void run() {
+            drainNext();
+        }
+    };
+
+    static synchronized RNPushNotificationRenderScheduler getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RNPushNotificationRenderScheduler(new RNPushNotificationConfig(context));
+        }
+        return sInstance;
+    }
+
+    private RNPushNotificationRenderScheduler(RNPushNotificationConfig config) {
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ArrayDeque<>();
+        }
+
+        String channelIds = config.getBulkChannelIds();
+
+        if (channelIds != null) {
+            for (String channelId : channelIds.split(",")) {
+                bulkChannelIds.add(channelId.trim());
+            }
+        }
+    }
+
+    /**
+     * Calls are messages classified as such, or notifications shown as a foreground service or
+     * with a full screen intent. Chat messages go ahead of other pushes whatever their priority.
+     *
+     * Remote messages carry their data payload in a nested "data" bundle, whose values
+     * override those of the notification payload.
+     */
+    int laneFor(Bundle bundle, int messageType) {
+        Bundle data = bundle.getBundle("data");
+
+        if (messageType == RNPushNotificationMessageClassifier.TYPE_CALL
+                || isTrue(get(bundle, data, "asForegroundService"))
+                || isTrue(get(bundle, data, "enableFullScreenIntent"))) {
+            return LANE_CALL;
+        }
+
+        if (messageType == RNPushNotificationMessageClassifier.TYPE_CHAT) {
+            return LANE_CHAT;
+        }
+
+        String priority = String.valueOf(get(bundle, data, "priority"));
+        Object channelId = get(bundle, data, "channelId");
+
+        if ("low".equalsIgnoreCase(priority) || "min".equalsIgnoreCase(priority)
+                || (channelId != null && bulkChannelIds.contains(channelId.toString()))) {
+            return LANE_BULK;
+        }
+
+        return LANE_DEFAULT;
+    }
+
+    /**
+     * Runs the task on the main thread once the tasks of the lanes before it are done.
+     */
+    void submit(int lane, Runnable runnable) {
+        final Task task = new Task(runnable, SystemClock.elapsedRealtime());
+
+        synchronized (this) {
+            lanes[lane].addLast(task);
+
+            if (!drainScheduled) {
+                drainScheduled = true;
+                mainHandler.post(drain);
+            }
+        }
+    }
+
+    private void drainNext() {
+        Task task = null;
+        int lane;
+
+        synchronized (this) {
+            for (lane = 0; lane < lanes.length; lane++) {
+                task = lanes[lane].pollFirst();
+
+                if (task != null) {
+                    break;
+                }
+            }
+
+            // One task per message, tasks submitted meanwhile can take over the next one
+            drainScheduled = task != null;
+
+            if (drainScheduled) {
+                mainHandler.post(drain);
+            }
+        }
+
+        if (task != null) {
+            RNPushNotificationMetrics.INSTANCE.record("renderQueued." + LANE_NAMES[lane], SystemClock.elapsedRealtime() - task.queuedAt);
+            task.runnable.run();
+        }
+    }
+
+    private static Object get(Bundle bundle, Bundle data, String key) {
+        if (data != null && data.containsKey(key)) {
+            return data.get(key);
+        }
+        return bundle.get(key);
+    }
+
+    private static boolean isTrue(Object value) {
+        return value instanceof Boolean ? (Boolean) value : "true".equalsIgnoreCase(String.valueOf(value));
+    }
+}
@@ -0,0 +1,67 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.Context;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Looks up the app's resources by name, such as icons, sounds and localization keys, caching the
+ * ids found as well as the names not found.
+ *
+ * Resources.getIdentifier is a slow lookup by name and resource ids can't change while the
+ * process is running. Names come from notifications, so the cache is simply cleared once it
+ * holds {@link #MAX_ENTRIES} of them.
+ */
+class RNPushNotificationResourceResolver {
+    static final int MAX_ENTRIES = 256;
+
+    private static final RNPushNotificationResourceResolver INSTANCE = new RNPushNotificationResourceResolver();
+
+    interface Lookup {
+        int getIdentifier(String name, String type);
+    }
+
+    private static class ContextLookup implements Lookup {
+        private final Context context;
+
+        ContextLookup(Context context) {
+            this.context = context;
+        }
+
+        public int getIdentifier(String name, String type) {
+            return context.getResources().getIdentifier(name, type, context.getPackageName());
+        }
+    }
+
+    private final ConcurrentHashMap<String, Integer> identifiers = new ConcurrentHashMap<>();
+
+    RNPushNotificationResourceResolver() {
+    }
+
+    /**
+     * Same as Resources.getIdentifier for the app's package, 0 when there is no such resource.
+     */
+    static int getIdentifier(Context context, String name, String type) {
+        return INSTANCE.getIdentifier(name, type, new ContextLookup(context));
+    }
+
+    int getIdentifier(String name, String type, Lookup lookup) {
+        String key = type + "/" + name;
+        Integer id = identifiers.get(key);
+
+        if (id != null) {
+            RNPushNotificationMetrics.INSTANCE.increment("resourceLookupHits");
+            return id;
+        }
+
+        RNPushNotificationMetrics.INSTANCE.increment("resourceLookupMisses");
+        id = lookup.getIdentifier(name, type);
+
+        if (identifiers.size() >= MAX_ENTRIES) {
+            identifiers.clear();
+        }
+
+        identifiers.put(key, id);
+        return id;
+    }
+}
@@ -0,0 +1,223 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Multiplexes every scheduled notification onto a single AlarmManager alarm, plus one for the
+ * earliest notification allowed to fire while idle when it isn't the earliest overall.
+ *
+ * The store keeps pending notifications ordered by fire date and only the earliest one has an
+ * alarm. When it goes off, {@link RNPushNotificationPublisher} drains every entry that is due
+ * and the alarm is re-armed for the next one, so the number of alarms no longer grows with the
+ * number of scheduled notifications.
+ */
+public class RNPushNotificationScheduler {
+    static final String ACTION_DRAIN = "com.dieam.reactnativepushnotification.ACTION_DRAIN";
+
+    private static final int REQUEST_NEXT = 0;
+    private static final int REQUEST_WHILE_IDLE = 1;
+
+    private static RNPushNotificationScheduler sInstance;
+
+    private final Context context;
+    private final RNPushNotificationStore store;
+    // Drained but not yet posted, they stay in the store until the notification is shown
+    private final Set<String> inFlight = new HashSet<>();
+    private String armedId;
+    private long armedFireDate = -1;
+    private boolean armedWhileIdle;
+    private String armedIdleId;
+    private long armedIdleFireDate = -1;
+
+    public static synchronized RNPushNotificationScheduler getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RNPushNotificationScheduler(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private RNPushNotificationScheduler(Context context) {
+        this.context = context;
+        this.store = RNPushNotificationStore.getInstance(context);
+    }
+
+    /**
+     * Called once a notification has been shown or cancelled.
+     */
+    public synchronized void unschedule(String id) {
+        inFlight.remove(id);
+
+        if (id.equals(armedId) || id.equals(armedIdleId)) {
+            arm();
+        }
+    }
+
+    /**
+     * Same as {@link #unschedule} for many notifications at once, re-arms at most once.
+     */
+    public synchronized void unscheduleAll(Collection<String> ids) {
+        // Not removeAll, it calls contains on the list for every in-flight id
+        for (String id : ids) {
+            inFlight.remove(id);
+        }
+
+        if ((armedId != null && ids.contains(armedId)) || (armedIdleId != null && ids.contains(armedIdleId))) {
+            arm();
+        }
+    }
+
+    /**
+     * Forgets claimed notifications, completed or dropped, without re-arming. The caller arms
+     * once it is done.
+     */
+    public synchronized void release(Collection<String> ids) {
+        for (String id : ids) {
+            inFlight.remove(id);
+        }
+    }
+
+    /**
+     * Marks a notification as being posted outside of a drain, returns false if it already is.
+     */
+    public synchronized boolean claim(String id) {
+        return inFlight.add(id);
+    }
+
+    /**
+     * Returns the ids of every notification due at or before the given time that hasn't been
+     * drained yet.
+     */
+    public synchronized List<String> takeDue(long now) {
+        List<String> due = new ArrayList<>();
+
+        // Only the entries up to now are read, future ones aren't touched
+        for (String id : store.idsBetween(Long.MIN_VALUE, now + 1, Integer.MAX_VALUE)) {
+            if (inFlight.add(id)) {
+                due.add(id);
+            }
+        }
+
+        return due;
+    }
+
+    /**
+     * Makes sure the alarm is set for the earliest pending notification, or cancelled if there
+     * is none. Only calls into AlarmManager when the earliest notification changed.
+     *
+     * Doze can defer an exact alarm past later notifications, so when the earliest one doesn't
+     * allow firing while idle, the earliest one that does gets a second alarm of its own.
+     */
+    public synchronized void arm() {
+        // Both come from the store's indexes, no payload is read
+        String nextId = store.firstId(false, inFlight);
+        long nextFireDate = nextId != null ? store.getFireDate(nextId) : -1;
+        String idleId = store.firstId(true, inFlight);
+        long idleFireDate = idleId != null ? store.getFireDate(idleId) : -1;
+
+        // Due with the earliest one, a single alarm allowed while idle covers both
+        boolean nextWhileIdle = idleId != null && idleFireDate == nextFireDate;
+
+        if (nextWhileIdle) {
+            idleId = null;
+            idleFireDate = -1;
+        }
+
+        AlarmManager alarmManager = null;
+
+        if (nextFireDate != armedFireDate || nextWhileIdle != armedWhileIdle || !equals(nextId, armedId)) {
+            alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+            setAlarm(alarmManager, REQUEST_NEXT, nextId, nextFireDate, nextWhileIdle);
+
+            armedId = nextId;
+            armedFireDate = nextFireDate;
+            armedWhileIdle = nextWhileIdle;
+        }
+
+        if (idleFireDate != armedIdleFireDate || !equals(idleId, armedIdleId)) {
+            if (alarmManager == null) {
+                alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+            }
+            setAlarm(alarmManager, REQUEST_WHILE_IDLE, idleId, idleFireDate, true);
+
+            armedIdleId = idleId;
+            armedIdleFireDate = idleFireDate;
+        }
+    }
+
+    /**
+     * Sets the drain alarm with the given request code for the notification, or cancels it if
+     * there is none.
+     */
+    private void setAlarm(AlarmManager alarmManager, int requestCode, String id, long fireDate, boolean allowWhileIdle) {
+        PendingIntent pendingIntent = toDrainIntent(requestCode);
+
+        if (id == null) {
+            alarmManager.cancel(pendingIntent);
+            return;
+        }
+
+        Log.d(LOG_TAG, "Arming scheduled notifications alarm " + requestCode + " at " + fireDate + " for " + id);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            if (allowWhileIdle && Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, fireDate, pendingIntent);
+            } else {
+                alarmManager.setExact(AlarmManager.RTC_WAKEUP, fireDate, pendingIntent);
+            }
+        } else {
+            alarmManager.set(AlarmManager.RTC_WAKEUP, fireDate, pendingIntent);
+        }
+    }
+
+    /**
+     * Cancels the alarm set for the notification by versions that had one alarm per
+     * notification, it would post it again once the drain alarm has. Those alarms used the
+     * notification id as request code and an intent without action.
+     */
+    static void cancelLegacyAlarm(Context context, String id) {
+        int requestCode;
+
+        try {
+            requestCode = Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            // Never had an alarm, the id couldn't be used as request code
+            return;
+        }
+
+        Intent intent = new Intent(context, RNPushNotificationPublisher.class);
+        int flags = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE : PendingIntent.FLAG_NO_CREATE;
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, requestCode, intent, flags);
+
+        if (pendingIntent != null) {
+            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+            alarmManager.cancel(pendingIntent);
+            pendingIntent.cancel();
+        }
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private PendingIntent toDrainIntent(int requestCode) {
+        Intent intent = new Intent(context, RNPushNotificationPublisher.class);
+        intent.setAction(ACTION_DRAIN);
+
+        int flags = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE : PendingIntent.FLAG_UPDATE_CURRENT;
+
+        return PendingIntent.getBroadcast(context, requestCode, intent, flags);
+    }
+}
@@ -0,0 +1,677 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Persistent store for scheduled notifications, keyed by notification id.
+ *
+ * Every put and remove appends a record to a log file, and an in-memory index maps each id to
+ * the location of its latest payload, so writes never rewrite the existing data and reads are a
+ * single seek. Superseded records are dropped by compacting the log once they outweigh the live
+ * ones.
+ *
+ * Each record also carries the notification's fire date, so the index ordered by fire date is
+ * rebuilt from the log on open without decoding any payload, and range queries ("everything
+ * firing in the next hour") only touch the entries in range. Entries allowed to fire while idle
+ * are also indexed apart, so the alarms are armed from the index alone.
+ *
+ * Record layout: [int bodyLength][int crc32(body)][body], where body is
+ * [byte op][short idLength][id (UTF-8)][long fireDate][payload]. A batch removal is a single record with an empty id whose
+ * payload is the list of removed ids, each as [short idLength][id], so it applies atomically.
+ */
+public class RNPushNotificationStore {
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String FILE_NAME = "rn_push_notification.log";
+    private static final int MAGIC = 0x524E504E; // "RNPN"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_REMOVE_BATCH = 3;
+    // Don't bother compacting small logs, the dead records cost next to nothing
+    private static final long COMPACTION_THRESHOLD = 64 * 1024;
+
+    private static RNPushNotificationStore sInstance;
+
+    private static class Entry implements Comparable<Entry> {
+        final String id;
+        final long fireDate;
+        final long recordOffset;
+        final int recordSize;
+        final long payloadOffset;
+        final int payloadSize;
+        final boolean allowWhileIdle;
+
+        Entry(String id, long fireDate, long recordOffset, int recordSize, long payloadOffset, int payloadSize, boolean allowWhileIdle) {
+            this.id = id;
+            this.fireDate = fireDate;
+            this.recordOffset = recordOffset;
+            this.recordSize = recordSize;
+            this.payloadOffset = payloadOffset;
+            this.payloadSize = payloadSize;
+            this.allowWhileIdle = allowWhileIdle;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            if (fireDate != other.fireDate) {
+                return fireDate < other.fireDate ? -1 : 1;
+            }
+            return id.compareTo(other.id);
+        }
+    }
+
+    private final File file;
+    private final Map<String, Entry> index = new HashMap<>();
+    private final TreeSet<Entry> byFireDate = new TreeSet<>();
+    private final TreeSet<Entry> whileIdleByFireDate = new TreeSet<>();
+    private RandomAccessFile log;
+    private long length;
+    private long deadBytes;
+
+    public static synchronized RNPushNotificationStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RNPushNotificationStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private RNPushNotificationStore(Context context) {
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+
+        try {
+            open();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to open scheduled notifications store, starting empty", e);
+            clearIndex();
+            reset();
+        }
+
+        // Also finishes a migration interrupted before the preferences were removed, putting the
+        // same ids again only replaces them
+        migrateFromSharedPreferences(context);
+    }
+
+    public synchronized byte[] get(String id) {
+        Entry entry = index.get(id);
+
+        if (entry == null || log == null) {
+            return null;
+        }
+
+        try {
+            return readPayload(entry);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to read scheduled notification " + id, e);
+            return null;
+        }
+    }
+
+    public synchronized boolean contains(String id) {
+        return index.containsKey(id);
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized List<String> ids() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    /**
+     * Returns the ids of the notifications firing in [from, to), earliest first, stopping after
+     * {@code limit} entries.
+     */
+    public synchronized List<String> idsBetween(long from, long to, int limit) {
+        return idsAfter(from, null, to, limit);
+    }
+
+    /**
+     * Same as {@link #idsBetween}, but when {@code afterId} is set the scan resumes right after
+     * that entry at {@code from} instead of including every entry at {@code from}. Used to page
+     * through the index.
+     */
+    public synchronized List<String> idsAfter(long from, String afterId, long to, int limit) {
+        List<String> ids = new ArrayList<>();
+
+        if (from >= to) {
+            return ids;
+        }
+
+        Entry fromKey = new Entry(afterId == null ? "" : afterId, from, 0, 0, 0, 0, false);
+
+        for (Entry entry : byFireDate.tailSet(fromKey, afterId == null)) {
+            if (entry.fireDate >= to || ids.size() >= limit) {
+                break;
+            }
+            ids.add(entry.id);
+        }
+
+        return ids;
+    }
+
+    /**
+     * Returns the id of the earliest notification that isn't excluded, only among those allowed
+     * to fire while idle when {@code whileIdle} is set, or null if there is none.
+     */
+    public synchronized String firstId(boolean whileIdle, Set<String> excluded) {
+        for (Entry entry : whileIdle ? whileIdleByFireDate : byFireDate) {
+            if (!excluded.contains(entry.id)) {
+                return entry.id;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the fire date of a stored notification, or -1 if there is none.
+     */
+    public synchronized long getFireDate(String id) {
+        Entry entry = index.get(id);
+        return entry == null ? -1 : entry.fireDate;
+    }
+
+    public synchronized boolean put(String id, long fireDate, byte[] payload) {
+        try {
+            index(append(OP_PUT, id, fireDate, payload));
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to store scheduled notification " + id, e);
+            return false;
+        }
+
+        compactIfNeeded();
+        return true;
+    }
+
+    /**
+     * Stores a batch of notifications with a single write, the three lists are read in
+     * parallel. Returns false if nothing could be written.
+     */
+    public synchronized boolean putAll(List<String> ids, List<Long> fireDates, List<byte[]> payloads) {
+        if (ids.isEmpty()) {
+            return true;
+        }
+
+        List<Entry> entries = new ArrayList<>(ids.size());
+
+        try {
+            if (log == null) {
+                throw new IOException("Scheduled notifications store is not open");
+            }
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            long offset = length;
+
+            for (int i = 0; i < ids.size(); i++) {
+                Entry entry = writeRecord(out, offset, OP_PUT, ids.get(i), fireDates.get(i), payloads.get(i));
+                entries.add(entry);
+                offset += entry.recordSize;
+            }
+
+            log.seek(length);
+            log.write(buffer.toByteArray());
+            length = offset;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to store " + ids.size() + " scheduled notifications", e);
+            return false;
+        }
+
+        for (Entry entry : entries) {
+            index(entry);
+        }
+
+        compactIfNeeded();
+        return true;
+    }
+
+    /**
+     * Returns false if there is no such notification, or if the removal couldn't be written and
+     * it is still stored.
+     */
+    public synchronized boolean remove(String id) {
+        Entry previous = index.get(id);
+
+        if (previous == null) {
+            return false;
+        }
+
+        try {
+            Entry tombstone = append(OP_REMOVE, id, 0, new byte[0]);
+            deadBytes += previous.recordSize + tombstone.recordSize;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to remove scheduled notification " + id, e);
+            return false;
+        }
+
+        index.remove(id);
+        unindex(previous);
+
+        compactIfNeeded();
+        return true;
+    }
+
+    /**
+     * Removes every given id that is stored with a single record, or by truncating the log when
+     * nothing is left. Returns the ids that were actually removed, none if the removal couldn't
+     * be written.
+     */
+    public synchronized List<String> removeAll(Collection<String> ids) {
+        List<String> removed = new ArrayList<>();
+        Set<Entry> previous = new HashSet<>();
+
+        for (String id : ids) {
+            Entry entry = index.get(id);
+            if (entry != null && previous.add(entry)) {
+                removed.add(id);
+            }
+        }
+
+        if (removed.isEmpty()) {
+            return removed;
+        }
+
+        if (removed.size() == index.size()) {
+            return reset() ? removed : new ArrayList<String>();
+        }
+
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(removed.size() * 16);
+
+        for (String id : removed) {
+            byte[] idBytes = id.getBytes(UTF_8);
+            batch.write(idBytes.length >>> 8);
+            batch.write(idBytes.length);
+            batch.write(idBytes, 0, idBytes.length);
+        }
+
+        try {
+            Entry tombstone = append(OP_REMOVE_BATCH, "", 0, batch.toByteArray());
+            deadBytes += tombstone.recordSize;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to remove " + removed.size() + " scheduled notifications", e);
+            return new ArrayList<>();
+        }
+
+        for (Entry entry : previous) {
+            index.remove(entry.id);
+            unindex(entry);
+            deadBytes += entry.recordSize;
+        }
+
+        compactIfNeeded();
+        return removed;
+    }
+
+    private void index(Entry entry) {
+        Entry previous = index.put(entry.id, entry);
+
+        if (previous != null) {
+            unindex(previous);
+            deadBytes += previous.recordSize;
+        }
+
+        byFireDate.add(entry);
+        if (entry.allowWhileIdle) {
+            whileIdleByFireDate.add(entry);
+        }
+    }
+
+    /**
+     * Removes the entry from the fire date indexes, not from the index by id.
+     */
+    private void unindex(Entry entry) {
+        byFireDate.remove(entry);
+        if (entry.allowWhileIdle) {
+            whileIdleByFireDate.remove(entry);
+        }
+    }
+
+    private static boolean allowsWhileIdle(byte op, byte[] payload) {
+        if (op != OP_PUT) {
+            return false;
+        }
+
+        try {
+            return RNPushNotificationAttributes.peekAllowWhileIdle(payload);
+        } catch (Exception e) {
+            // Unreadable anyway, it is dropped when drained
+            return false;
+        }
+    }
+
+    private byte[] readPayload(Entry entry) throws IOException {
+        byte[] payload = new byte[entry.payloadSize];
+        log.seek(entry.payloadOffset);
+        log.readFully(payload);
+        return payload;
+    }
+
+    private Entry append(byte op, String id, long fireDate, byte[] payload) throws IOException {
+        if (log == null) {
+            throw new IOException("Scheduled notifications store is not open");
+        }
+
+        long offset = length;
+        log.seek(offset);
+        Entry entry = writeRecord(log, offset, op, id, fireDate, payload);
+        length += entry.recordSize;
+        return entry;
+    }
+
+    /**
+     * Writes a record at the current position of {@code out}, which is at {@code offset} in
+     * the log.
+     */
+    private static Entry writeRecord(DataOutput out, long offset, byte op, String id, long fireDate, byte[] payload) throws IOException {
+        byte[] idBytes = id.getBytes(UTF_8);
+        int prefixSize = 3 + idBytes.length + 8;
+        byte[] body = new byte[prefixSize + payload.length];
+
+        body[0] = op;
+        body[1] = (byte) (idBytes.length >>> 8);
+        body[2] = (byte) idBytes.length;
+        System.arraycopy(idBytes, 0, body, 3, idBytes.length);
+        for (int i = 0; i < 8; i++) {
+            body[3 + idBytes.length + i] = (byte) (fireDate >>> (56 - 8 * i));
+        }
+        System.arraycopy(payload, 0, body, prefixSize, payload.length);
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        out.writeInt(body.length);
+        out.writeInt((int) crc.getValue());
+        out.write(body);
+
+        return new Entry(id, fireDate, offset, RECORD_HEADER_SIZE + body.length, offset + RECORD_HEADER_SIZE + prefixSize, payload.length, allowsWhileIdle(op, payload));
+    }
+
+    private void open() throws IOException {
+        log = new RandomAccessFile(file, "rw");
+
+        if (log.length() < FILE_HEADER_SIZE) {
+            log.setLength(0);
+            log.writeInt(MAGIC);
+            log.writeInt(VERSION);
+            length = FILE_HEADER_SIZE;
+            return;
+        }
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Unrecognized scheduled notifications store format");
+            }
+
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported scheduled notifications store version " + version);
+            }
+
+            long offset = FILE_HEADER_SIZE;
+            long fileLength = log.length();
+            CRC32 crc = new CRC32();
+
+            while (offset + RECORD_HEADER_SIZE <= fileLength) {
+                int bodySize = in.readInt();
+                int checksum = in.readInt();
+
+                if (bodySize < 3 + 8 || offset + RECORD_HEADER_SIZE + bodySize > fileLength) {
+                    break;
+                }
+
+                byte[] body = new byte[bodySize];
+                in.readFully(body);
+
+                crc.reset();
+                crc.update(body);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                int idSize = ((body[1] & 0xFF) << 8) | (body[2] & 0xFF);
+                int prefixSize = 3 + idSize + 8;
+                if (prefixSize > bodySize) {
+                    break;
+                }
+
+                String id = new String(body, 3, idSize, UTF_8);
+                long fireDate = 0;
+                for (int i = 0; i < 8; i++) {
+                    fireDate = (fireDate << 8) | (body[3 + idSize + i] & 0xFF);
+                }
+
+                int recordSize = RECORD_HEADER_SIZE + bodySize;
+                Entry previous;
+
+                if (body[0] == OP_PUT) {
+                    // The payload is already in memory, no need to read it again to arm
+                    boolean allowWhileIdle = allowsWhileIdle(OP_PUT, Arrays.copyOfRange(body, prefixSize, bodySize));
+                    Entry entry = new Entry(id, fireDate, offset, recordSize, offset + RECORD_HEADER_SIZE + prefixSize, bodySize - prefixSize, allowWhileIdle);
+                    previous = index.put(id, entry);
+                } else if (body[0] == OP_REMOVE_BATCH) {
+                    previous = null;
+                    deadBytes += recordSize;
+
+                    for (int position = prefixSize; position + 2 <= bodySize; ) {
+                        int removedSize = ((body[position] & 0xFF) << 8) | (body[position + 1] & 0xFF);
+                        Entry removed = index.remove(new String(body, position + 2, removedSize, UTF_8));
+                        if (removed != null) {
+                            deadBytes += removed.recordSize;
+                        }
+                        position += 2 + removedSize;
+                    }
+                } else {
+                    previous = index.remove(id);
+                    deadBytes += recordSize;
+                }
+
+                if (previous != null) {
+                    deadBytes += previous.recordSize;
+                }
+
+                offset += recordSize;
+            }
+
+            if (offset < fileLength) {
+                // A partially written record from a crash, everything before it is intact
+                Log.w(LOG_TAG, "Truncating scheduled notifications store at " + offset + " of " + fileLength);
+                log.setLength(offset);
+            }
+
+            length = offset;
+        } catch (EOFException e) {
+            throw new IOException("Scheduled notifications store ended unexpectedly", e);
+        } finally {
+            in.close();
+        }
+
+        for (Entry entry : index.values()) {
+            byFireDate.add(entry);
+            if (entry.allowWhileIdle) {
+                whileIdleByFireDate.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Empties the log, then the index. Returns false if the log couldn't be emptied, the index
+     * is kept and nothing can be written until the next launch.
+     */
+    private boolean reset() {
+        try {
+            if (log != null) {
+                log.close();
+            }
+            log = new RandomAccessFile(file, "rw");
+            log.setLength(0);
+            log.writeInt(MAGIC);
+            log.writeInt(VERSION);
+            length = FILE_HEADER_SIZE;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to reset scheduled notifications store", e);
+            log = null;
+            return false;
+        }
+
+        clearIndex();
+        return true;
+    }
+
+    private void clearIndex() {
+        index.clear();
+        byFireDate.clear();
+        whileIdleByFireDate.clear();
+        deadBytes = 0;
+    }
+
+    private void compactIfNeeded() {
+        if (deadBytes < COMPACTION_THRESHOLD || deadBytes < length - deadBytes) {
+            return;
+        }
+
+        try {
+            rewrite();
+            Log.d(LOG_TAG, "Compacted scheduled notifications store to " + length + " bytes");
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to compact scheduled notifications store", e);
+
+            try {
+                if (log == null || !log.getFD().valid()) {
+                    log = new RandomAccessFile(file, "rw");
+                }
+            } catch (IOException reopen) {
+                Log.e(LOG_TAG, "Unable to reopen scheduled notifications store", reopen);
+                log = null;
+            }
+        }
+    }
+
+    /**
+     * Writes the live entries to a fresh log and swaps it in.
+     */
+    private void rewrite() throws IOException {
+        File compacted = new File(file.getPath() + ".compact");
+        Map<String, Entry> compactedIndex = new HashMap<>(index.size());
+        RandomAccessFile out = new RandomAccessFile(compacted, "rw");
+
+        try {
+            out.setLength(0);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            long offset = FILE_HEADER_SIZE;
+
+            for (Entry entry : index.values()) {
+                Entry written = writeRecord(out, offset, OP_PUT, entry.id, entry.fireDate, readPayload(entry));
+                compactedIndex.put(entry.id, written);
+                offset += written.recordSize;
+            }
+
+            out.getFD().sync();
+        } catch (IOException e) {
+            compacted.delete();
+            throw e;
+        } finally {
+            out.close();
+        }
+
+        log.close();
+
+        if (!compacted.renameTo(file)) {
+            compacted.delete();
+            throw new IOException("Unable to replace " + file + " with compacted log");
+        }
+
+        log = new RandomAccessFile(file, "rw");
+        length = log.length();
+        clearIndex();
+
+        for (Entry entry : compactedIndex.values()) {
+            index(entry);
+        }
+    }
+
+    private void migrateFromSharedPreferences(Context context) {
+        SharedPreferences preferences = context.getSharedPreferences(RNPushNotificationHelper.PREFERENCES_KEY, Context.MODE_PRIVATE);
+        Map<String, ?> legacy = preferences.getAll();
+
+        if (legacy.isEmpty()) {
+            return;
+        }
+
+        Log.i(LOG_TAG, "Migrating " + legacy.size() + " scheduled notifications from shared preferences");
+
+        List<String> migrated = new ArrayList<>();
+
+        for (Map.Entry<String, ?> entry : legacy.entrySet()) {
+            if (!(entry.getValue() instanceof String)) {
+                continue;
+            }
+
+            try {
+                RNPushNotificationAttributes attributes = RNPushNotificationAttributes.fromJson((String) entry.getValue());
+                if (put(entry.getKey(), (long) attributes.getFireDate(), attributes.toBytes())) {
+                    // The drain alarm posts it from now on
+                    RNPushNotificationScheduler.cancelLegacyAlarm(context, entry.getKey());
+                    migrated.add(entry.getKey());
+                }
+            } catch (Exception e) {
+                Log.e(LOG_TAG, "Unable to migrate scheduled notification " + entry.getKey(), e);
+            }
+        }
+
+        if (migrated.isEmpty()) {
+            return;
+        }
+
+        try {
+            log.getFD().sync();
+        } catch (Exception e) {
+            // Kept in the preferences until the store is known to hold them
+            Log.w(LOG_TAG, "Unable to sync scheduled notifications store after migration", e);
+            return;
+        }
+
+        // The others are tried again on the next launch
+        SharedPreferences.Editor editor = preferences.edit();
+        for (String id : migrated) {
+            editor.remove(id);
+        }
+        editor.commit();
+
+        if (migrated.size() < legacy.size()) {
+            Log.w(LOG_TAG, "Migrated " + migrated.size() + " of " + legacy.size() + " scheduled notifications");
+        }
+    }
+}
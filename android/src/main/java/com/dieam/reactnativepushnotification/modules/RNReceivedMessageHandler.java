@@ -7,8 +7,7 @@ import android.app.ActivityManager;
 import android.app.ActivityManager.RunningAppProcessInfo;
 import android.app.Application;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
+import android.os.SystemClock;
 import android.content.Context;
 import android.util.Log;
 import android.net.Uri;
@@ -16,10 +15,6 @@ import androidx.annotation.NonNull;
 import androidx.core.app.NotificationCompat;
 
 import com.dieam.reactnativepushnotification.helpers.ApplicationBadgeHelper;
-import com.facebook.react.ReactApplication;
-import com.facebook.react.ReactInstanceManager;
-import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContext;
 
 import org.json.JSONObject;
 
@@ -38,6 +33,31 @@ public class RNReceivedMessageHandler {
     }
 
     public void handleReceivedMessage(RemoteMessage message) {
+        handleReceivedMessage(message, RNPushNotificationMessageClassifier.TYPE_DEFAULT);
+    }
+
+    /**
+     * Renders the call ahead of any other notification, without waiting for the React context.
+     */
+    public void handleCallMessage(RemoteMessage message) {
+        handleReceivedMessage(message, RNPushNotificationMessageClassifier.TYPE_CALL);
+    }
+
+    /**
+     * Renders the chat message after calls but ahead of regular and bulk notifications.
+     */
+    public void handleChatMessage(RemoteMessage message) {
+        handleReceivedMessage(message, RNPushNotificationMessageClassifier.TYPE_CHAT);
+    }
+
+    /**
+     * Delivers a message with nothing to show to JS, without going through rendering.
+     */
+    public void handleSilentMessage(RemoteMessage message) {
+        handleReceivedMessage(message, RNPushNotificationMessageClassifier.TYPE_SILENT);
+    }
+
+    private void handleReceivedMessage(RemoteMessage message, int messageType) {
         String from = message.getFrom();
         RemoteMessage.Notification remoteNotification = message.getNotification();
         final Bundle bundle = new Bundle();
@@ -128,36 +148,50 @@ public class RNReceivedMessageHandler {
 
         Log.v(LOG_TAG, "onMessageReceived: " + bundle);
 
-        // We need to run this on the main thread, as the React code assumes that is true.
-        // Namely, DevServerHelper constructs a Handler() without a Looper, which triggers:
-        // "Can't create handler inside thread that has not called Looper.prepare()"
-        Handler handler = new Handler(Looper.getMainLooper());
-        handler.post(new Runnable() {
-            public void run() {
-                // Construct and load our normal React JS code bundle
-                final ReactInstanceManager mReactInstanceManager = ((ReactApplication) mFirebaseMessagingService.getApplication()).getReactNativeHost().getReactInstanceManager();
-                ReactContext context = mReactInstanceManager.getCurrentReactContext();
-                // If it's constructed, send a notificationre
-                if (context != null) {
-                    handleRemotePushNotification((ReactApplicationContext) context, bundle);
-                } else {
-                    // Otherwise wait for construction, then send the notification
-                    mReactInstanceManager.addReactInstanceEventListener(new ReactInstanceManager.ReactInstanceEventListener() {
-                        public void onReactContextInitialized(ReactContext context) {
-                            handleRemotePushNotification((ReactApplicationContext) context, bundle);
-                            mReactInstanceManager.removeReactInstanceEventListener(this);
-                        }
-                    });
-                    if (!mReactInstanceManager.hasStartedCreatingInitialContext()) {
-                        // Construct it in the background
-                        mReactInstanceManager.createReactContextInBackground();
-                    }
+        final RNPushNotificationConfig config = new RNPushNotificationConfig(mFirebaseMessagingService.getApplication());
+        final RNPushNotificationRenderScheduler scheduler = RNPushNotificationRenderScheduler.getInstance(mFirebaseMessagingService.getApplication());
+        final int lane = scheduler.laneFor(bundle, messageType);
+        final boolean render = messageType != RNPushNotificationMessageClassifier.TYPE_SILENT;
+
+        if (config.getNotificationHeadlessRender() || lane == RNPushNotificationRenderScheduler.LANE_CALL) {
+            // Show the notification right away instead of waiting for the JS bundle to load,
+            // the JS event is queued until the React context exists. Calls never wait for it
+            scheduler.submit(lane, new Runnable() {
+                public void run() {
+                    notifyRemotePushNotification(renderRemotePushNotification(config, bundle, render));
                 }
+            });
+            return;
+        }
+
+        final Runnable handleRemotePushNotification = new Runnable() {
+            public void run() {
+                handleRemotePushNotification(bundle, render);
+            }
+        };
+
+        Runnable submitRemotePushNotification = new Runnable() {
+            public void run() {
+                scheduler.submit(lane, handleRemotePushNotification);
             }
-        });
+        };
+
+        RNPushNotificationEventQueue eventQueue = RNPushNotificationEventQueue.getInstance(mFirebaseMessagingService.getApplication());
+
+        if (eventQueue != null) {
+            // Wait for the React context, so the foreground state is known
+            eventQueue.runWhenReady(submitRemotePushNotification);
+        } else {
+            submitRemotePushNotification.run();
+        }
     }
 
-    private void handleRemotePushNotification(ReactApplicationContext context, Bundle bundle) {
+    /**
+     * Posts the notification without a React context. Returns a copy of the bundle as it was
+     * before posting, to be delivered to JS.
+     */
+    private Bundle renderRemotePushNotification(RNPushNotificationConfig config, Bundle bundle, boolean render) {
+        long start = SystemClock.elapsedRealtime();
 
         // If notification ID is not provided by the user for push notification, generate one at random
         if (bundle.getString("id") == null) {
@@ -165,24 +199,54 @@ public class RNReceivedMessageHandler {
             bundle.putString("id", String.valueOf(randomNumberGenerator.nextInt()));
         }
 
-        Application applicationContext = (Application) context.getApplicationContext();
-
-        RNPushNotificationConfig config = new RNPushNotificationConfig(mFirebaseMessagingService.getApplication());  
-        RNPushNotificationHelper pushNotificationHelper = new RNPushNotificationHelper(applicationContext);
+        RNPushNotificationHelper pushNotificationHelper = new RNPushNotificationHelper(mFirebaseMessagingService.getApplication());
 
         boolean isForeground = pushNotificationHelper.isApplicationInForeground();
-
-        RNPushNotificationJsDelivery jsDelivery = new RNPushNotificationJsDelivery(context);
         bundle.putBoolean("foreground", isForeground);
         bundle.putBoolean("userInteraction", false);
+
+        Bundle jsBundle = new Bundle(bundle);
+
+        if (render && (config.getNotificationForeground() || !isForeground)) {
+            Log.v(LOG_TAG, "sendNotification (headless): " + bundle);
+
+            pushNotificationHelper.sendToNotificationCentre(bundle);
+            RNPushNotificationMetrics.INSTANCE.record("headlessRender", SystemClock.elapsedRealtime() - start);
+        }
+
+        return jsBundle;
+    }
+
+    private void notifyRemotePushNotification(Bundle bundle) {
+        RNPushNotificationJsDelivery jsDelivery = new RNPushNotificationJsDelivery(mFirebaseMessagingService.getApplication());
         jsDelivery.notifyNotification(bundle);
 
         // If contentAvailable is set to true, then send out a remote fetch event
         if (bundle.getString("contentAvailable", "false").equalsIgnoreCase("true")) {
             jsDelivery.notifyRemoteFetch(bundle);
         }
+    }
+
+    private void handleRemotePushNotification(Bundle bundle, boolean render) {
+
+        // If notification ID is not provided by the user for push notification, generate one at random
+        if (bundle.getString("id") == null) {
+            SecureRandom randomNumberGenerator = new SecureRandom();
+            bundle.putString("id", String.valueOf(randomNumberGenerator.nextInt()));
+        }
+
+        Application applicationContext = mFirebaseMessagingService.getApplication();
+
+        RNPushNotificationConfig config = new RNPushNotificationConfig(applicationContext);
+        RNPushNotificationHelper pushNotificationHelper = new RNPushNotificationHelper(applicationContext);
+
+        boolean isForeground = pushNotificationHelper.isApplicationInForeground();
+
+        bundle.putBoolean("foreground", isForeground);
+        bundle.putBoolean("userInteraction", false);
+        notifyRemotePushNotification(bundle);
 
-        if (config.getNotificationForeground() || !isForeground) {
+        if (render && (config.getNotificationForeground() || !isForeground)) {
             Log.v(LOG_TAG, "sendNotification: " + bundle);
 
             pushNotificationHelper.sendToNotificationCentre(bundle);
@@ -195,12 +259,11 @@ public class RNReceivedMessageHandler {
         }
 
         Context context = mFirebaseMessagingService.getApplicationContext();
-        String packageName = context.getPackageName();
 
         String result = null;
 
         if (locKey != null) {
-            int id = context.getResources().getIdentifier(locKey, "string", packageName);
+            int id = RNPushNotificationResourceResolver.getIdentifier(context, locKey, "string");
             if (id != 0) {
                 if (locArgs != null) {
                     result = context.getResources().getString(id, (Object[]) locArgs);
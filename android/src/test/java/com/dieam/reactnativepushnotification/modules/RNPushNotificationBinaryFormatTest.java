@@ -0,0 +1,213 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RNPushNotificationBinaryFormatTest {
+    private static final String FULL_JSON = "{"
+            + "\"id\":\"42\",\"message\":\"Hello \\u00e9\\u4e16\",\"fireDate\":1600000000123,"
+            + "\"title\":\"Same\",\"ticker\":\"Same\",\"showWhen\":false,\"autoCancel\":false,"
+            + "\"largeIcon\":\"ic_large\",\"largeIconUrl\":\"https://example.com/a.png\","
+            + "\"smallIcon\":\"ic_small\",\"bigText\":\"Big\",\"subText\":\"Sub\","
+            + "\"bigPictureUrl\":\"https://example.com/a.png\",\"shortcutId\":\"shortcut\","
+            + "\"number\":\"7\",\"channelId\":\"channel\",\"sound\":\"ding\",\"color\":\"red\","
+            + "\"group\":\"group\",\"groupSummary\":true,\"messageId\":\"m1\",\"playSound\":false,"
+            + "\"vibrate\":false,\"vibration\":250.5,\"actions\":\"[\\\"Yes\\\"]\",\"invokeApp\":false,"
+            + "\"tag\":\"tag\",\"repeatType\":\"day\",\"repeatTime\":-3,\"when\":-0.0,"
+            + "\"usesChronometer\":true,\"timeoutAfter\":0.25,\"onlyAlertOnce\":true,\"ongoing\":true,"
+            + "\"reply_button_text\":\"Reply\",\"reply_placeholder_text\":\"Type\","
+            + "\"allowWhileIdle\":true,\"ignoreInForeground\":true,\"userInfo\":\"{}\","
+            + "\"repeatWeekdays\":42,\"repeatUntil\":1700000000000,\"repeatCount\":3,"
+            + "\"repeatOccurrence\":1}";
+
+    @Test
+    public void roundTripsEveryField() throws JSONException {
+        RNPushNotificationAttributes attributes = RNPushNotificationAttributes.fromJson(FULL_JSON);
+
+        byte[] bytes = attributes.toBytes();
+
+        assertTrue(RNPushNotificationBinaryFormat.isBinary(bytes));
+        assertEquals(attributes.toString(), RNPushNotificationAttributes.fromBytes(bytes).toString());
+    }
+
+    @Test
+    public void omitsDefaultsAndReadsThemBack() throws JSONException {
+        RNPushNotificationAttributes defaults = RNPushNotificationAttributes.fromJson("{}");
+
+        byte[] bytes = defaults.toBytes();
+
+        // Header, empty string table and the end marker only
+        assertArrayEquals(new byte[]{RNPushNotificationBinaryFormat.MAGIC, RNPushNotificationBinaryFormat.VERSION, 0, 0}, bytes);
+        assertEquals(defaults.toString(), RNPushNotificationAttributes.fromBytes(bytes).toString());
+    }
+
+    @Test
+    public void storesRepeatedStringsOnce() throws JSONException {
+        RNPushNotificationAttributes attributes = RNPushNotificationAttributes.fromJson(
+                "{\"title\":\"A long repeated value\",\"ticker\":\"A long repeated value\",\"message\":\"A long repeated value\"}");
+
+        byte[] bytes = attributes.toBytes();
+
+        assertEquals(1, count(bytes, "A long repeated value".getBytes(RNPushNotificationStore.UTF_8)));
+        RNPushNotificationAttributes decoded = RNPushNotificationAttributes.fromBytes(bytes);
+        assertEquals("A long repeated value", decoded.getTitle());
+        assertEquals("A long repeated value", decoded.getMessage());
+    }
+
+    @Test
+    public void keepsNegativeZeroAndFractions() {
+        double[] values = {-0.0, 0.5, -1.25, 1e300, Double.NaN, Double.NEGATIVE_INFINITY, Long.MAX_VALUE, Long.MIN_VALUE, -1, 1600000000123.0};
+
+        for (double value : values) {
+            RNPushNotificationBinaryFormat.Writer writer = new RNPushNotificationBinaryFormat.Writer();
+            writer.putDouble(1, value, 0.0);
+
+            RNPushNotificationBinaryFormat.Reader reader = new RNPushNotificationBinaryFormat.Reader(writer.toByteArray());
+
+            assertEquals(1, reader.nextTag());
+            assertEquals(Double.doubleToRawLongBits(value), Double.doubleToRawLongBits(reader.readDouble()));
+            assertEquals(0, reader.nextTag());
+        }
+    }
+
+    @Test
+    public void writesWholeNumbersAsVarints() {
+        RNPushNotificationBinaryFormat.Writer writer = new RNPushNotificationBinaryFormat.Writer();
+        writer.putDouble(1, 1, 0.0);
+
+        // Header, empty string table, key, zigzag 1 and the end marker
+        assertEquals(6, writer.toByteArray().length);
+    }
+
+    @Test
+    public void skipsUnknownTags() throws JSONException {
+        RNPushNotificationBinaryFormat.Writer writer = new RNPushNotificationBinaryFormat.Writer();
+        writer.putString(100, "unknown");
+        writer.putString(1, "42");
+        writer.putDouble(101, 0.5, 0.0);
+        writer.putDouble(102, 12345, 0.0);
+        writer.putBoolean(103, true, false);
+        writer.putString(4, "Title");
+        writer.putString(104, "Title");
+
+        RNPushNotificationAttributes decoded = RNPushNotificationAttributes.fromBytes(writer.toByteArray());
+
+        assertEquals("42", decoded.getId());
+        assertEquals("Title", decoded.getTitle());
+        assertEquals(null, decoded.getMessage());
+    }
+
+    @Test
+    public void decodesLegacyJson() throws JSONException {
+        RNPushNotificationAttributes attributes = RNPushNotificationAttributes.fromJson(FULL_JSON);
+
+        byte[] legacy = FULL_JSON.getBytes(RNPushNotificationStore.UTF_8);
+
+        assertFalse(RNPushNotificationBinaryFormat.isBinary(legacy));
+        assertEquals(attributes.toString(), RNPushNotificationAttributes.fromBytes(legacy).toString());
+    }
+
+    @Test
+    public void rejectsTruncatedData() throws JSONException {
+        byte[] bytes = RNPushNotificationAttributes.fromJson(FULL_JSON).toBytes();
+
+        for (int length = 1; length < bytes.length; length++) {
+            try {
+                RNPushNotificationAttributes.fromBytes(Arrays.copyOf(bytes, length));
+                fail("Decoded " + length + " of " + bytes.length + " bytes");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void rejectsCorruptData() throws JSONException {
+        byte[] newerVersion = {RNPushNotificationBinaryFormat.MAGIC, (byte) (RNPushNotificationBinaryFormat.VERSION + 1), 0, 0};
+        byte[] hugeStringTable = {RNPushNotificationBinaryFormat.MAGIC, RNPushNotificationBinaryFormat.VERSION, 0x7F, 0};
+        byte[] badStringReference = {RNPushNotificationBinaryFormat.MAGIC, RNPushNotificationBinaryFormat.VERSION, 0, (1 << 3) | 2, 5, 0};
+        byte[] wrongType = {RNPushNotificationBinaryFormat.MAGIC, RNPushNotificationBinaryFormat.VERSION, 0, (1 << 3), 1, 0};
+        byte[] unknownType = {RNPushNotificationBinaryFormat.MAGIC, RNPushNotificationBinaryFormat.VERSION, 0, (byte) ((100 << 3 & 0x7F) | 0x80 | 7), 100 >> 4, 0};
+        byte[] endlessVarint = new byte[16];
+        Arrays.fill(endlessVarint, (byte) 0xFF);
+        endlessVarint[0] = RNPushNotificationBinaryFormat.MAGIC;
+        endlessVarint[1] = RNPushNotificationBinaryFormat.VERSION;
+
+        for (byte[] corrupt : Arrays.asList(newerVersion, hugeStringTable, badStringReference, wrongType, unknownType, endlessVarint)) {
+            try {
+                RNPushNotificationAttributes.fromBytes(corrupt);
+                fail("Decoded " + Arrays.toString(corrupt));
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test(expected = JSONException.class)
+    public void rejectsCorruptJson() throws JSONException {
+        RNPushNotificationAttributes.fromBytes("{\"id\":".getBytes(RNPushNotificationStore.UTF_8));
+    }
+
+    @Test
+    public void isSmallerAndFasterThanJson() throws JSONException {
+        RNPushNotificationAttributes attributes = RNPushNotificationAttributes.fromJson(FULL_JSON);
+        byte[] binary = attributes.toBytes();
+        byte[] json = attributes.toJson().toString().getBytes(RNPushNotificationStore.UTF_8);
+
+        assertTrue(binary.length + " >= " + json.length, binary.length < json.length);
+
+        // Best of several rounds after warming up, to leave out JIT compilation and GC pauses
+        long binaryNanos = Long.MAX_VALUE;
+        long jsonNanos = Long.MAX_VALUE;
+
+        for (int round = 0; round < 5; round++) {
+            binaryNanos = Math.min(binaryNanos, timeBinaryRoundTrips(attributes, 1000));
+            jsonNanos = Math.min(jsonNanos, timeJsonRoundTrips(attributes, 1000));
+        }
+
+        System.out.println("Round trip of a full notification: binary " + binaryNanos / 1000 + "ns, "
+                + binary.length + " bytes; JSON " + jsonNanos / 1000 + "ns, " + json.length + " bytes");
+
+        assertTrue("binary " + binaryNanos + "ns, JSON " + jsonNanos + "ns", binaryNanos < jsonNanos);
+    }
+
+    private static long timeBinaryRoundTrips(RNPushNotificationAttributes attributes, int count) throws JSONException {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < count; i++) {
+            attributes = RNPushNotificationAttributes.fromBytes(attributes.toBytes());
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private static long timeJsonRoundTrips(RNPushNotificationAttributes attributes, int count) throws JSONException {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < count; i++) {
+            attributes = RNPushNotificationAttributes.fromJson(attributes.toJson().toString());
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private static int count(byte[] data, byte[] pattern) {
+        int count = 0;
+
+        for (int i = 0; i + pattern.length <= data.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(data, i, i + pattern.length), pattern)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,327 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import com.android.volley.ExecutorDelivery;
+import com.android.volley.Network;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.ServerError;
+import com.android.volley.TimeoutError;
+import com.android.volley.VolleyError;
+import com.android.volley.toolbox.NoCache;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RNPushNotificationCallAckSenderTest {
+    private static final String URL = "https://calls.example.com/ack";
+    private static final String BATCH_URL = "https://calls.example.com/acks";
+
+    /**
+     * Answers requests with the queued statuses, 200 once there are none left and a timeout for 0.
+     */
+    private static class FakeNetwork implements Network {
+        final Queue<Integer> statuses = new LinkedList<>();
+        final List<String> urls = new ArrayList<>();
+        final List<String> bodies = new ArrayList<>();
+
+        public synchronized NetworkResponse performRequest(Request<?> request) throws VolleyError {
+            urls.add(request.getUrl());
+            bodies.add(new String(request.getBody()));
+
+            Integer status = statuses.poll();
+
+            if (status == null) {
+                status = 200;
+            } else if (status == 0) {
+                throw new TimeoutError();
+            }
+
+            NetworkResponse response = new NetworkResponse(status, "{}".getBytes(), Collections.<String, String>emptyMap(), false);
+
+            if (status >= 400) {
+                throw new ServerError(response);
+            }
+
+            return response;
+        }
+    }
+
+    /**
+     * Keeps the retries until the test runs them.
+     */
+    private static class FakeTimer implements RNPushNotificationCallAckSender.Timer {
+        final List<Long> delays = new ArrayList<>();
+        final List<Runnable> runnables = new ArrayList<>();
+
+        public synchronized void postDelayed(Runnable runnable, long delayMillis) {
+            delays.add(delayMillis);
+            runnables.add(runnable);
+        }
+
+        void runNext() {
+            Runnable runnable;
+
+            synchronized (this) {
+                runnable = runnables.remove(0);
+            }
+
+            runnable.run();
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeNetwork network;
+    private FakeTimer timer;
+    private RequestQueue queue;
+    private File file;
+    private final Semaphore finished = new Semaphore(0);
+
+    @Before
+    public void setUp() {
+        network = new FakeNetwork();
+        timer = new FakeTimer();
+        file = new File(folder.getRoot(), "acks");
+
+        // Responses are delivered on the network thread, released once the sender has handled them
+        queue = new RequestQueue(new NoCache(), network, 1, new ExecutorDelivery(new Executor() {
+            public void execute(Runnable runnable) {
+                runnable.run();
+            }
+        }));
+        queue.addRequestFinishedListener(new RequestQueue.RequestFinishedListener<Object>() {
+            public void onRequestFinished(Request<Object> request) {
+                finished.release();
+            }
+        });
+        queue.start();
+    }
+
+    @After
+    public void tearDown() {
+        queue.stop();
+    }
+
+    @Test
+    public void sendsAnAcknowledgementToTheUrl() throws IOException, JSONException, InterruptedException {
+        newSender(BATCH_URL).send(ack(1, "Y"));
+        awaitRequests(1);
+
+        assertEquals(Collections.singletonList(URL), network.urls);
+        assertEquals(ack(1, "Y").toString(), network.bodies.get(0));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void batchesAcknowledgementsQueuedWhileBackingOff() throws IOException, JSONException, InterruptedException {
+        network.statuses.add(0);
+
+        RNPushNotificationCallAckSender sender = newSender(BATCH_URL);
+        sender.send(ack(1, "Y"));
+        awaitRequests(1);
+
+        // Kept on disk and not sent until the retry
+        sender.send(ack(2, "Y"));
+        sender.send(ack(3, "Y"));
+        assertEquals(1, network.urls.size());
+        assertEquals(3, RNPushNotificationCallAckSender.readAcks(file).size());
+
+        timer.runNext();
+        awaitRequests(1);
+
+        assertEquals(Arrays.asList(URL, BATCH_URL), network.urls);
+        JSONArray updates = new JSONObject(network.bodies.get(1)).getJSONArray("updates");
+        assertEquals(3, updates.length());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ack(i + 1, "Y").toString(), updates.getJSONObject(i).toString());
+        }
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void sendsOneAtATimeWithoutABatchUrl() throws IOException, JSONException, InterruptedException {
+        network.statuses.add(0);
+
+        RNPushNotificationCallAckSender sender = newSender(null);
+        sender.send(ack(1, "Y"));
+        awaitRequests(1);
+        sender.send(ack(2, "Y"));
+
+        timer.runNext();
+        awaitRequests(2);
+
+        assertEquals(Arrays.asList(URL, URL, URL), network.urls);
+        assertEquals(ack(1, "Y").toString(), network.bodies.get(1));
+        assertEquals(ack(2, "Y").toString(), network.bodies.get(2));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void sendsAcknowledgementsSavedBeforeARestart() throws IOException, JSONException, InterruptedException {
+        network.statuses.add(503);
+
+        newSender(BATCH_URL).send(ack(1, "Y"));
+        awaitRequests(1);
+        assertEquals(1, RNPushNotificationCallAckSender.readAcks(file).size());
+
+        // A new process, the retry of the previous one never ran
+        newSender(BATCH_URL);
+        awaitRequests(1);
+
+        assertEquals(Arrays.asList(URL, URL), network.urls);
+        assertEquals(ack(1, "Y").toString(), network.bodies.get(1));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void dropsRejectedAcknowledgementsWithoutRetrying() throws IOException, JSONException, InterruptedException {
+        long dropped = RNPushNotificationMetrics.INSTANCE.getCounter("callAcksDropped");
+        network.statuses.add(400);
+
+        RNPushNotificationCallAckSender sender = newSender(BATCH_URL);
+        sender.send(ack(1, "Y"));
+        awaitRequests(1);
+
+        assertTrue(timer.delays.isEmpty());
+        assertFalse(file.exists());
+        assertEquals(dropped + 1, RNPushNotificationMetrics.INSTANCE.getCounter("callAcksDropped"));
+
+        // Later acknowledgements aren't held back
+        sender.send(ack(2, "Y"));
+        awaitRequests(1);
+
+        assertEquals(ack(2, "Y").toString(), network.bodies.get(1));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void retriesServerErrorsAndTimeoutsWithBackoff() throws IOException, JSONException, InterruptedException {
+        long retries = RNPushNotificationMetrics.INSTANCE.getCounter("callAckRetries");
+        network.statuses.addAll(Arrays.asList(500, 0, 429));
+
+        newSender(BATCH_URL).send(ack(1, "Y"));
+        awaitRequests(1);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1, RNPushNotificationCallAckSender.readAcks(file).size());
+            timer.runNext();
+            awaitRequests(1);
+        }
+
+        assertEquals(Arrays.asList(1000L, 2000L, 4000L), timer.delays);
+        assertEquals(4, network.urls.size());
+        assertEquals(ack(1, "Y").toString(), network.bodies.get(3));
+        assertFalse(file.exists());
+        assertEquals(retries + 3, RNPushNotificationMetrics.INSTANCE.getCounter("callAckRetries"));
+    }
+
+    @Test
+    public void doublesTheBackoffUpToFiveMinutes() {
+        long[] expected = {1000, 2000, 4000, 8000, 16000, 32000, 64000, 128000, 256000, 300000, 300000};
+        long backoff = 0;
+
+        for (long delay : expected) {
+            backoff = RNPushNotificationCallAckSender.nextBackoff(backoff);
+            assertEquals(delay, backoff);
+        }
+    }
+
+    @Test
+    public void dropsOnlyRejectedAcknowledgements() {
+        for (int status : new int[]{400, 401, 403, 404, 422, 499}) {
+            assertTrue(String.valueOf(status), RNPushNotificationCallAckSender.isRejected(status));
+        }
+
+        // No response, timeouts, rate limiting and server errors are retried
+        for (int status : new int[]{0, 200, 408, 429, 500, 503}) {
+            assertFalse(String.valueOf(status), RNPushNotificationCallAckSender.isRejected(status));
+        }
+    }
+
+    @Test
+    public void savesAndReadsBackAcknowledgements() throws IOException, JSONException {
+        File file = new File(folder.getRoot(), "acks");
+        List<JSONObject> acks = Arrays.asList(
+                ack(1, "Y"),
+                ack(2, "café \"quoted\" /path"),
+                ack(3, "\n"));
+
+        RNPushNotificationCallAckSender.writeAcks(file, acks);
+        List<JSONObject> read = RNPushNotificationCallAckSender.readAcks(file);
+
+        assertEquals(acks.size(), read.size());
+        for (int i = 0; i < acks.size(); i++) {
+            assertEquals(acks.get(i).toString(), read.get(i).toString());
+        }
+    }
+
+    @Test
+    public void deletesTheFileOnceEverythingIsSent() throws IOException, JSONException {
+        File file = new File(folder.getRoot(), "acks");
+
+        RNPushNotificationCallAckSender.writeAcks(file, Collections.singletonList(ack(1, "Y")));
+        assertTrue(file.exists());
+
+        RNPushNotificationCallAckSender.writeAcks(file, new ArrayList<JSONObject>());
+        assertFalse(file.exists());
+        assertTrue(RNPushNotificationCallAckSender.readAcks(file).isEmpty());
+    }
+
+    @Test(expected = JSONException.class)
+    public void rejectsACorruptFile() throws IOException, JSONException {
+        File file = new File(folder.getRoot(), "acks");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("[{\"call_id\":".getBytes("UTF-8"));
+        out.close();
+
+        RNPushNotificationCallAckSender.readAcks(file);
+    }
+
+    private RNPushNotificationCallAckSender newSender(String batchUrl) {
+        return new RNPushNotificationCallAckSender(queue, file, URL, batchUrl, timer);
+    }
+
+    private void awaitRequests(int count) throws InterruptedException {
+        assertTrue(finished.tryAcquire(count, 5, TimeUnit.SECONDS));
+    }
+
+    private static JSONObject ack(int callId, String received) throws JSONException {
+        JSONObject deviceData = new JSONObject();
+        deviceData.put("battery_level", 42);
+        deviceData.put("is_device_locked", true);
+
+        JSONObject callData = new JSONObject();
+        callData.put("wasFCMPayloadReceived", received);
+        callData.put("device_data", deviceData);
+
+        JSONObject ack = new JSONObject();
+        ack.put("call_id", callId);
+        ack.put("call_data", callData);
+        return ack;
+    }
+}
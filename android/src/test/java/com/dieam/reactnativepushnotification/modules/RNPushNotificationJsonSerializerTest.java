@@ -0,0 +1,193 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.os.Bundle;
+
+import com.sun.management.ThreadMXBean;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RNPushNotificationJsonSerializerTest {
+    @Test
+    public void writesStringsThatNeedEscaping() {
+        Bundle bundle = new Bundle();
+        bundle.putString("quotes", "say \"hi\"");
+        bundle.putString("backslash", "C:\\path");
+        bundle.putString("slash", "https://example.com/a?b=c");
+        bundle.putString("whitespace", "line\nnext\ttab\rreturn\bback\fform");
+        bundle.putString("control", "\u0000\u0001\u001f");
+        bundle.putString("unicode", "caf\u00e9 \u4e16\u754c \ud83d\ude00");
+        bundle.putString("empty", "");
+        bundle.putString("key \"with\" quotes", "value");
+
+        assertSameAsJsonObject(bundle);
+    }
+
+    @Test
+    public void writesNulls() {
+        Bundle nested = new Bundle();
+        nested.putString("nothing", null);
+
+        Bundle bundle = new Bundle();
+        bundle.putString("string", null);
+        bundle.putBundle("bundle", null);
+        bundle.putStringArray("array", null);
+        bundle.putStringArray("items", new String[]{"a", null, "c"});
+        bundle.putBundle("nested", nested);
+
+        assertSameAsJsonObject(bundle);
+    }
+
+    @Test
+    public void writesNestedBundles() {
+        Bundle innermost = new Bundle();
+        innermost.putInt("depth", 3);
+        innermost.putString("path", "a/b/c");
+
+        Bundle inner = new Bundle();
+        inner.putBundle("innermost", innermost);
+        inner.putBoolean("flag", true);
+        inner.putBundle("empty", new Bundle());
+
+        Bundle bundle = new Bundle();
+        bundle.putBundle("data", inner);
+        bundle.putString("id", "42");
+
+        assertSameAsJsonObject(bundle);
+    }
+
+    @Test
+    public void writesArrays() {
+        Bundle bundle = new Bundle();
+        bundle.putStringArray("strings", new String[]{"a", "b\"c", "d/e"});
+        bundle.putIntArray("ints", new int[]{1, -2, Integer.MAX_VALUE});
+        bundle.putLongArray("longs", new long[]{Long.MIN_VALUE, 0, Long.MAX_VALUE});
+        bundle.putDoubleArray("doubles", new double[]{1.0, 0.5, -0.0, 1e20, 1600000000123.0});
+        bundle.putFloatArray("floats", new float[]{0.1f, 2f});
+        bundle.putBooleanArray("booleans", new boolean[]{true, false});
+        bundle.putIntArray("empty", new int[0]);
+        bundle.putStringArrayList("stringList", new ArrayList<>(Arrays.asList("x", "y")));
+        bundle.putIntegerArrayList("intList", new ArrayList<>(Arrays.asList(1, 2, 3)));
+
+        assertSameAsJsonObject(bundle);
+    }
+
+    @Test
+    public void writesNumbers() {
+        Bundle bundle = new Bundle();
+        bundle.putInt("int", -7);
+        bundle.putLong("long", Long.MAX_VALUE);
+        bundle.putDouble("whole", 1600000000123.0);
+        bundle.putDouble("fraction", 0.25);
+        bundle.putDouble("negativeZero", -0.0);
+        bundle.putDouble("large", 1e20);
+        bundle.putDouble("small", 1e-7);
+        bundle.putFloat("float", 0.1f);
+        bundle.putShort("short", (short) 3);
+        bundle.putByte("byte", (byte) -1);
+        bundle.putBoolean("boolean", false);
+        bundle.putChar("char", '"');
+
+        assertSameAsJsonObject(bundle);
+    }
+
+    @Test
+    public void returnsNullForNonFiniteNumbers() {
+        Bundle bundle = new Bundle();
+        bundle.putDouble("nan", Double.NaN);
+
+        assertNull(legacyJson(bundle));
+        assertNull(RNPushNotificationJsonSerializer.toJson(bundle));
+    }
+
+    @Test
+    public void allocatesLessThanJsonObject() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Bundle data = new Bundle();
+        data.putString("LKCallType", "chat");
+        data.putString("conversation", "1234");
+        data.putString("sender", "Someone \"quoted\"");
+
+        Bundle bundle = new Bundle();
+        bundle.putString("id", "1702345");
+        bundle.putString("title", "New message");
+        bundle.putString("message", "Line one\nline two with a url https://example.com/a?b=c");
+        bundle.putString("channelId", "messages");
+        bundle.putString("smallIcon", "ic_notification");
+        bundle.putDouble("fireDate", 1600000000123.0);
+        bundle.putBoolean("foreground", false);
+        bundle.putBoolean("userInteraction", false);
+        bundle.putBundle("data", data);
+
+        // Warms up both paths and the bundle's own lazy state
+        for (int i = 0; i < 1000; i++) {
+            RNPushNotificationJsonSerializer.toJson(bundle);
+            legacyJson(bundle);
+        }
+
+        long thread = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 1000; i++) {
+            RNPushNotificationJsonSerializer.toJson(bundle);
+        }
+        long serializerBytes = threads.getThreadAllocatedBytes(thread) - start;
+
+        start = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 1000; i++) {
+            legacyJson(bundle);
+        }
+        long jsonObjectBytes = threads.getThreadAllocatedBytes(thread) - start;
+
+        System.out.println("Bytes allocated per notification: serializer " + serializerBytes / 1000
+                + ", JSONObject " + jsonObjectBytes / 1000);
+
+        assertTrue("serializer " + serializerBytes + ", JSONObject " + jsonObjectBytes, serializerBytes < jsonObjectBytes);
+    }
+
+    private static void assertSameAsJsonObject(Bundle bundle) {
+        // JSONObject also escapes "/", which JSON doesn't require
+        assertEquals(legacyJson(bundle).replace("\\/", "/"), RNPushNotificationJsonSerializer.toJson(bundle));
+    }
+
+    /**
+     * The conversion used before the serializer.
+     */
+    private static String legacyJson(Bundle bundle) {
+        try {
+            return legacyJsonObject(bundle).toString();
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    private static JSONObject legacyJsonObject(Bundle bundle) throws JSONException {
+        JSONObject json = new JSONObject();
+        for (String key : bundle.keySet()) {
+            Object value = bundle.get(key);
+            if (value instanceof Bundle) {
+                json.put(key, legacyJsonObject((Bundle) value));
+            } else {
+                json.put(key, JSONObject.wrap(value));
+            }
+        }
+        return json;
+    }
+}
@@ -0,0 +1,120 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RNPushNotificationPicturesAggregatorTest {
+    // ARGB_8888, as decoded by Fresco
+    private static final int BYTES_PER_PIXEL = 4;
+
+    @Test
+    public void keepsPicturesThatFit() {
+        assertArrayEquals(new int[]{200, 100}, RNPushNotificationPicturesAggregator.fitSize(200, 100, 1080, 1080));
+        assertArrayEquals(new int[]{1080, 1080}, RNPushNotificationPicturesAggregator.fitSize(1080, 1080, 1080, 1080));
+    }
+
+    @Test
+    public void scalesWidePicturesToTheWidth() {
+        // A 4000px banner shown as the big picture of a 1080px wide screen
+        assertArrayEquals(new int[]{1080, 540}, RNPushNotificationPicturesAggregator.fitSize(4000, 2000, 1080, 1080));
+        assertArrayEquals(new int[]{1080, 608}, RNPushNotificationPicturesAggregator.fitSize(3840, 2160, 1080, 1080));
+    }
+
+    @Test
+    public void scalesTallPicturesToTheHeight() {
+        assertArrayEquals(new int[]{360, 1080}, RNPushNotificationPicturesAggregator.fitSize(1000, 3000, 1080, 1080));
+    }
+
+    @Test
+    public void scalesLargeIconsToTheIconSize() {
+        assertArrayEquals(new int[]{192, 192}, RNPushNotificationPicturesAggregator.fitSize(1024, 1024, 192, 192));
+        assertArrayEquals(new int[]{192, 144}, RNPushNotificationPicturesAggregator.fitSize(4000, 3000, 192, 192));
+    }
+
+    @Test
+    public void neverScalesToNothing() {
+        assertArrayEquals(new int[]{100, 1}, RNPushNotificationPicturesAggregator.fitSize(10000, 1, 100, 100));
+        assertArrayEquals(new int[]{1, 1}, RNPushNotificationPicturesAggregator.scaledSize(1, 1, 0.01));
+    }
+
+    @Test
+    public void keepsPicturesWithinTheBudget() {
+        long budget = RNPushNotificationPicturesAggregator.BYTE_BUDGET;
+
+        assertEquals(1, RNPushNotificationPicturesAggregator.budgetFactor(0, budget), 0);
+        assertEquals(1, RNPushNotificationPicturesAggregator.budgetFactor(budget, budget), 0);
+        assertEquals(0.5, RNPushNotificationPicturesAggregator.budgetFactor(4 * budget, budget), 0);
+    }
+
+    @Test
+    public void scalesAllPicturesDownTogetherOverTheBudget() {
+        // Big picture on a 1440px wide screen, with the large icon and big large icon
+        int[][] sizes = {{192, 192}, {1440, 1440}, {192, 192}};
+        int[][] scaled = scaleToBudget(sizes);
+
+        assertArrayEquals(new int[]{116, 116}, scaled[0]);
+        assertArrayEquals(new int[]{871, 871}, scaled[1]);
+        assertArrayEquals(new int[]{116, 116}, scaled[2]);
+        assertTrue(bytes(scaled) <= RNPushNotificationPicturesAggregator.BYTE_BUDGET);
+    }
+
+    @Test
+    public void finalSizesFitTheSlotsAndTheBudget() {
+        Random random = new Random(42);
+        int[][] slots = {{192, 192}, {1440, 1440}, {192, 192}};
+
+        for (int i = 0; i < 10000; i++) {
+            int[][] sizes = new int[slots.length][];
+
+            for (int slot = 0; slot < slots.length; slot++) {
+                int width = 1 + random.nextInt(8000);
+                int height = 1 + random.nextInt(8000);
+                sizes[slot] = RNPushNotificationPicturesAggregator.fitSize(width, height, slots[slot][0], slots[slot][1]);
+
+                assertTrue(sizes[slot][0] >= 1 && sizes[slot][0] <= slots[slot][0]);
+                assertTrue(sizes[slot][1] >= 1 && sizes[slot][1] <= slots[slot][1]);
+
+                // Aspect ratio kept within rounding
+                double factor = Math.min(1, Math.min((double) slots[slot][0] / width, (double) slots[slot][1] / height));
+                assertTrue(Math.abs(sizes[slot][0] - width * factor) <= 1);
+                assertTrue(Math.abs(sizes[slot][1] - height * factor) <= 1);
+            }
+
+            assertTrue(bytes(scaleToBudget(sizes)) <= RNPushNotificationPicturesAggregator.BYTE_BUDGET);
+        }
+    }
+
+    /**
+     * Sizes handed to the notification, as scaled in post().
+     */
+    private static int[][] scaleToBudget(int[][] sizes) {
+        double factor = RNPushNotificationPicturesAggregator.budgetFactor(bytes(sizes), RNPushNotificationPicturesAggregator.BYTE_BUDGET);
+
+        if (factor == 1) {
+            return sizes;
+        }
+
+        int[][] scaled = new int[sizes.length][];
+
+        for (int i = 0; i < sizes.length; i++) {
+            scaled[i] = RNPushNotificationPicturesAggregator.scaledSize(sizes[i][0], sizes[i][1], factor);
+        }
+
+        return scaled;
+    }
+
+    private static long bytes(int[][] sizes) {
+        long bytes = 0;
+
+        for (int[] size : sizes) {
+            bytes += (long) size[0] * size[1] * BYTES_PER_PIXEL;
+        }
+
+        return bytes;
+    }
+}
@@ -0,0 +1,256 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RNPushNotificationRecurrenceTest {
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+    private static final TimeZone LORD_HOWE = TimeZone.getTimeZone("Australia/Lord_Howe");
+    private static final TimeZone[] ZONES = {
+            UTC,
+            NEW_YORK,
+            LORD_HOWE,
+            TimeZone.getTimeZone("Europe/London"),
+            TimeZone.getTimeZone("Australia/Sydney"),
+            TimeZone.getTimeZone("America/Santiago"),
+    };
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+
+    @Test
+    public void repeatsEveryInterval() {
+        long previous = time(UTC, 2022, Calendar.JANUARY, 3, 9, 0);
+
+        assertNext(previous + 15 * MINUTE, 2, new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_MINUTE, 15, 0, 0, 0), previous, 1, previous, UTC);
+        assertNext(previous + 3 * HOUR, 2, new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_HOUR, 3, 0, 0, 0), previous, 1, previous, UTC);
+        assertNext(previous + 5000, 2, new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_TIME, 5000, 0, 0, 0), previous, 1, previous, UTC);
+        assertNext(time(UTC, 2022, Calendar.JANUARY, 6, 9, 0), 2, new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_DAY, 3, 0, 0, 0), previous, 1, previous, UTC);
+        assertNext(time(UTC, 2022, Calendar.JANUARY, 17, 9, 0), 2, new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_WEEK, 2, 0, 0, 0), previous, 1, previous, UTC);
+        assertNext(time(UTC, 2022, Calendar.APRIL, 3, 9, 0), 2, new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_MONTH, 3, 0, 0, 0), previous, 1, previous, UTC);
+    }
+
+    @Test
+    public void skipsMissedOccurrences() {
+        long previous = time(UTC, 2022, Calendar.JANUARY, 3, 9, 0);
+
+        assertNext(previous + 45 * MINUTE, 4, new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_MINUTE, 15, 0, 0, 0), previous, 1, previous + 40 * MINUTE, UTC);
+        // Exactly on an occurrence, which is then the previous one
+        assertNext(previous + 60 * MINUTE, 5, new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_MINUTE, 15, 0, 0, 0), previous, 1, previous + 45 * MINUTE, UTC);
+        assertNext(time(UTC, 2022, Calendar.JANUARY, 12, 9, 0), 4, new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_DAY, 3, 0, 0, 0), previous, 1, time(UTC, 2022, Calendar.JANUARY, 10, 12, 0), UTC);
+        assertNext(time(UTC, 2022, Calendar.JANUARY, 15, 9, 0), 5, new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_DAY, 3, 0, 0, 0), previous, 1, time(UTC, 2022, Calendar.JANUARY, 12, 9, 0), UTC);
+        assertNext(time(UTC, 2023, Calendar.JANUARY, 3, 9, 0), 13, new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_MONTH, 1, 0, 0, 0), previous, 1, time(UTC, 2022, Calendar.DECEMBER, 25, 0, 0), UTC);
+    }
+
+    @Test
+    public void clampsToTheEndOfTheMonth() {
+        RNPushNotificationRecurrence monthly = new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_MONTH, 1, 0, 0, 0);
+        long january = time(UTC, 2022, Calendar.JANUARY, 31, 9, 0);
+
+        assertNext(time(UTC, 2022, Calendar.FEBRUARY, 28, 9, 0), 2, monthly, january, 1, january, UTC);
+        assertNext(time(UTC, 2022, Calendar.MARCH, 28, 9, 0), 3, monthly, time(UTC, 2022, Calendar.FEBRUARY, 28, 9, 0), 2, january, UTC);
+        assertNext(time(UTC, 2022, Calendar.APRIL, 30, 9, 0), 4, monthly, january, 1, time(UTC, 2022, Calendar.APRIL, 15, 9, 0), UTC);
+
+        long leapJanuary = time(UTC, 2024, Calendar.JANUARY, 31, 9, 0);
+        assertNext(time(UTC, 2024, Calendar.FEBRUARY, 29, 9, 0), 2, monthly, leapJanuary, 1, leapJanuary, UTC);
+
+        long december = time(UTC, 2022, Calendar.DECEMBER, 31, 9, 0);
+        assertNext(time(UTC, 2023, Calendar.JANUARY, 31, 9, 0), 2, monthly, december, 1, december, UTC);
+    }
+
+    @Test
+    public void repeatsOnTheGivenWeekdays() {
+        int mondayWednesdayFriday = (1 << Calendar.MONDAY - 1) | (1 << Calendar.WEDNESDAY - 1) | (1 << Calendar.FRIDAY - 1);
+        RNPushNotificationRecurrence weekly = new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_WEEK, 1, mondayWednesdayFriday, 0, 0);
+        long monday = time(UTC, 2022, Calendar.JANUARY, 3, 9, 0);
+        long friday = time(UTC, 2022, Calendar.JANUARY, 7, 9, 0);
+
+        assertNext(time(UTC, 2022, Calendar.JANUARY, 5, 9, 0), 2, weekly, monday, 1, monday, UTC);
+        assertNext(time(UTC, 2022, Calendar.JANUARY, 10, 9, 0), 4, weekly, friday, 3, friday, UTC);
+        // Tuesday of the third week, after Monday's occurrence
+        assertNext(time(UTC, 2022, Calendar.JANUARY, 19, 9, 0), 8, weekly, monday, 1, time(UTC, 2022, Calendar.JANUARY, 18, 9, 0), UTC);
+    }
+
+    @Test
+    public void repeatsOnTheGivenWeekdaysEveryOtherWeek() {
+        int mondayFriday = (1 << Calendar.MONDAY - 1) | (1 << Calendar.FRIDAY - 1);
+        RNPushNotificationRecurrence biweekly = new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_WEEK, 2, mondayFriday, 0, 0);
+        long monday = time(UTC, 2022, Calendar.JANUARY, 3, 9, 0);
+        long friday = time(UTC, 2022, Calendar.JANUARY, 7, 9, 0);
+
+        assertNext(friday, 2, biweekly, monday, 1, monday, UTC);
+        assertNext(time(UTC, 2022, Calendar.JANUARY, 17, 9, 0), 3, biweekly, friday, 2, friday, UTC);
+        assertNext(time(UTC, 2022, Calendar.JANUARY, 21, 9, 0), 4, biweekly, monday, 1, time(UTC, 2022, Calendar.JANUARY, 20, 9, 0), UTC);
+    }
+
+    @Test
+    public void endsAfterCountOrUntil() {
+        long previous = time(UTC, 2022, Calendar.JANUARY, 3, 9, 0);
+
+        RNPushNotificationRecurrence threeTimes = new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_DAY, 1, 0, 0, 3);
+        assertNext(time(UTC, 2022, Calendar.JANUARY, 5, 9, 0), 3, threeTimes, time(UTC, 2022, Calendar.JANUARY, 4, 9, 0), 2, previous, UTC);
+        assertEquals(RNPushNotificationRecurrence.NONE, threeTimes.next(time(UTC, 2022, Calendar.JANUARY, 5, 9, 0), 3, previous, UTC));
+        assertEquals(RNPushNotificationRecurrence.NONE, threeTimes.next(previous, 1, time(UTC, 2022, Calendar.JANUARY, 6, 0, 0), UTC));
+
+        long until = time(UTC, 2022, Calendar.JANUARY, 5, 9, 0);
+        RNPushNotificationRecurrence untilFifth = new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_DAY, 1, 0, until, 0);
+        assertNext(until, 3, untilFifth, time(UTC, 2022, Calendar.JANUARY, 4, 9, 0), 2, previous, UTC);
+        assertEquals(RNPushNotificationRecurrence.NONE, untilFifth.next(until, 3, previous, UTC));
+    }
+
+    @Test
+    public void movesTimesSkippedByDstForward() {
+        RNPushNotificationRecurrence daily = new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_DAY, 1, 0, 0, 0);
+        long previous = time(NEW_YORK, 2022, Calendar.MARCH, 12, 2, 22);
+
+        // 02:22 doesn't exist on 2022-03-13, 03:22 EDT
+        assertNext(1647156120000L, 2, daily, previous, 1, previous, NEW_YORK);
+        assertNext(calendarNext(previous, Calendar.DATE, 1, NEW_YORK), 2, daily, previous, 1, previous, NEW_YORK);
+    }
+
+    @Test
+    public void picksTheLaterOfTimesRepeatedByDst() {
+        RNPushNotificationRecurrence daily = new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_DAY, 1, 0, 0, 0);
+        long previous = time(NEW_YORK, 2022, Calendar.NOVEMBER, 5, 1, 30);
+
+        // 01:30 happens twice on 2022-11-06, 01:30 EST
+        assertNext(1667716200000L, 2, daily, previous, 1, previous, NEW_YORK);
+        assertNext(calendarNext(previous, Calendar.DATE, 1, NEW_YORK), 2, daily, previous, 1, previous, NEW_YORK);
+    }
+
+    @Test
+    public void resolvesHalfHourDstChanges() {
+        RNPushNotificationRecurrence daily = new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_DAY, 1, 0, 0, 0);
+        long beforeGap = time(LORD_HOWE, 2022, Calendar.OCTOBER, 1, 2, 10);
+        long beforeOverlap = time(LORD_HOWE, 2022, Calendar.APRIL, 2, 1, 45);
+
+        assertNext(calendarNext(beforeGap, Calendar.DATE, 1, LORD_HOWE), 2, daily, beforeGap, 1, beforeGap, LORD_HOWE);
+        assertNext(calendarNext(beforeOverlap, Calendar.DATE, 1, LORD_HOWE), 2, daily, beforeOverlap, 1, beforeOverlap, LORD_HOWE);
+    }
+
+    @Test
+    public void matchesCalendarAroundTheYear() {
+        RNPushNotificationRecurrence daily = new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_DAY, 1, 0, 0, 0);
+        RNPushNotificationRecurrence weekly = new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_WEEK, 1, 0, 0, 0);
+        RNPushNotificationRecurrence monthly = new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_MONTH, 1, 0, 0, 0);
+
+        for (TimeZone timeZone : ZONES) {
+            for (int day = 1; day <= 366; day++) {
+                for (int minutes = 0; minutes < 4 * 60; minutes += 10) {
+                    Calendar calendar = Calendar.getInstance(timeZone);
+                    calendar.clear();
+                    calendar.set(2022, Calendar.JANUARY, day, minutes / 60, minutes % 60);
+                    long previous = calendar.getTimeInMillis();
+                    String message = timeZone.getID() + " " + calendar.getTime();
+
+                    assertEquals(message, calendarNext(previous, Calendar.DATE, 1, timeZone), daily.next(previous, 1, previous, timeZone));
+                    assertEquals(message, calendarNext(previous, Calendar.DATE, 7, timeZone), weekly.next(previous, 1, previous, timeZone));
+                    assertEquals(message, calendarNext(previous, Calendar.MONTH, 1, timeZone), monthly.next(previous, 1, previous, timeZone));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void catchesUpFasterThanCalendarStepping() {
+        long now = time(NEW_YORK, 2022, Calendar.JUNE, 15, 12, 0);
+        // Ten years of missed daily occurrences, across twenty DST changes
+        long daysAgo = time(NEW_YORK, 2012, Calendar.MARCH, 1, 2, 30);
+        // A month of missed occurrences every minute
+        long minutesAgo = time(NEW_YORK, 2022, Calendar.MAY, 15, 12, 0);
+
+        compareWithCalendarStepping(new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_DAY, 1, 0, 0, 0), Calendar.DATE, daysAgo, now);
+        compareWithCalendarStepping(new RNPushNotificationRecurrence(RNPushNotificationRecurrence.UNIT_MINUTE, 1, 0, 0, 0), Calendar.MINUTE, minutesAgo, now);
+    }
+
+    private static void compareWithCalendarStepping(RNPushNotificationRecurrence recurrence, int field, long previous, long now) {
+        long[] steps = new long[1];
+        long expected = calendarStep(previous, field, now, NEW_YORK, steps);
+
+        assertNext(expected, 1 + steps[0], recurrence, previous, 1, now, NEW_YORK);
+
+        // Best of several rounds after warming up, to leave out JIT compilation and GC pauses
+        long recurrenceNanos = Long.MAX_VALUE;
+        long calendarNanos = Long.MAX_VALUE;
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 5; i++) {
+                recurrence.next(previous, 1, now, NEW_YORK);
+            }
+            recurrenceNanos = Math.min(recurrenceNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < 5; i++) {
+                calendarStep(previous, field, now, NEW_YORK, steps);
+            }
+            calendarNanos = Math.min(calendarNanos, System.nanoTime() - start);
+        }
+
+        System.out.println("Catching up on " + steps[0] + " occurrences: next " + recurrenceNanos / 5
+                + "ns, Calendar stepping " + calendarNanos / 5 + "ns");
+
+        assertTrue("next " + recurrenceNanos + "ns, Calendar " + calendarNanos + "ns", recurrenceNanos < calendarNanos);
+    }
+
+    /**
+     * The first occurrence after now found by stepping through every missed one with Calendar,
+     * as repeating notifications did before, counting the steps.
+     */
+    private static long calendarStep(long previous, int field, long now, TimeZone timeZone, long[] steps) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(previous);
+
+        int hour = calendar.get(Calendar.HOUR_OF_DAY);
+        int minute = calendar.get(Calendar.MINUTE);
+        long next = previous;
+        steps[0] = 0;
+
+        while (next <= now) {
+            calendar.add(field, 1);
+            if (field != Calendar.MINUTE) {
+                calendar.set(Calendar.HOUR_OF_DAY, hour);
+                calendar.set(Calendar.MINUTE, minute);
+            }
+            next = calendar.getTimeInMillis();
+            steps[0]++;
+        }
+
+        return next;
+    }
+
+    private static void assertNext(long expected, long expectedOccurrence, RNPushNotificationRecurrence recurrence, long previous, long previousOccurrence, long now, TimeZone timeZone) {
+        assertEquals(expected, recurrence.next(previous, previousOccurrence, now, timeZone));
+        assertEquals(expectedOccurrence, recurrence.getOccurrence());
+    }
+
+    private static long time(TimeZone timeZone, int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Same local time, the given amount later. The time is set again after add, which keeps
+     * the offset of the original time when the new one is skipped or repeated by DST.
+     */
+    private static long calendarNext(long time, int field, int amount, TimeZone timeZone) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(time);
+
+        int hour = calendar.get(Calendar.HOUR_OF_DAY);
+        int minute = calendar.get(Calendar.MINUTE);
+
+        calendar.add(field, amount);
+        calendar.set(Calendar.HOUR_OF_DAY, hour);
+        calendar.set(Calendar.MINUTE, minute);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,95 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RNPushNotificationResourceResolverTest {
+    private static final int ICON_ID = 0x7f020001;
+
+    /**
+     * Resources with a single drawable named "icon", recording every lookup.
+     */
+    private static class FakeLookup implements RNPushNotificationResourceResolver.Lookup {
+        final List<String> lookups = new ArrayList<>();
+
+        public int getIdentifier(String name, String type) {
+            lookups.add(type + "/" + name);
+            return "icon".equals(name) && "drawable".equals(type) ? ICON_ID : 0;
+        }
+    }
+
+    private RNPushNotificationResourceResolver resolver;
+    private FakeLookup lookup;
+
+    @Before
+    public void setUp() {
+        resolver = new RNPushNotificationResourceResolver();
+        lookup = new FakeLookup();
+    }
+
+    @Test
+    public void cachesFoundResources() {
+        long hits = RNPushNotificationMetrics.INSTANCE.getCounter("resourceLookupHits");
+        long misses = RNPushNotificationMetrics.INSTANCE.getCounter("resourceLookupMisses");
+
+        assertEquals(ICON_ID, resolver.getIdentifier("icon", "drawable", lookup));
+        assertEquals(ICON_ID, resolver.getIdentifier("icon", "drawable", lookup));
+        assertEquals(ICON_ID, resolver.getIdentifier("icon", "drawable", lookup));
+
+        assertEquals(1, lookup.lookups.size());
+        assertEquals(hits + 2, RNPushNotificationMetrics.INSTANCE.getCounter("resourceLookupHits"));
+        assertEquals(misses + 1, RNPushNotificationMetrics.INSTANCE.getCounter("resourceLookupMisses"));
+    }
+
+    @Test
+    public void cachesMissingResources() {
+        // The usual fallbacks of a small icon that isn't in the app
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, resolver.getIdentifier("custom_icon", "drawable", lookup));
+            assertEquals(0, resolver.getIdentifier("custom_icon", "mipmap", lookup));
+            assertEquals(0, resolver.getIdentifier("ic_notification", "mipmap", lookup));
+        }
+
+        assertEquals(3, lookup.lookups.size());
+    }
+
+    @Test
+    public void keepsTypesApart() {
+        assertEquals(ICON_ID, resolver.getIdentifier("icon", "drawable", lookup));
+        assertEquals(0, resolver.getIdentifier("icon", "mipmap", lookup));
+        assertEquals(0, resolver.getIdentifier("icon", "raw", lookup));
+        assertEquals(ICON_ID, resolver.getIdentifier("icon", "drawable", lookup));
+
+        assertEquals(3, lookup.lookups.size());
+    }
+
+    @Test
+    public void clearsOnceFull() {
+        resolver.getIdentifier("icon", "drawable", lookup);
+
+        for (int i = 1; i < RNPushNotificationResourceResolver.MAX_ENTRIES; i++) {
+            resolver.getIdentifier("name" + i, "string", lookup);
+        }
+
+        // Full, but everything is still cached
+        resolver.getIdentifier("icon", "drawable", lookup);
+        resolver.getIdentifier("name1", "string", lookup);
+        assertEquals(RNPushNotificationResourceResolver.MAX_ENTRIES, lookup.lookups.size());
+
+        // One more name clears it
+        resolver.getIdentifier("name" + RNPushNotificationResourceResolver.MAX_ENTRIES, "string", lookup);
+        assertEquals(RNPushNotificationResourceResolver.MAX_ENTRIES + 1, lookup.lookups.size());
+
+        assertEquals(ICON_ID, resolver.getIdentifier("icon", "drawable", lookup));
+        assertEquals(RNPushNotificationResourceResolver.MAX_ENTRIES + 2, lookup.lookups.size());
+
+        // The name that cleared it is kept
+        resolver.getIdentifier("name" + RNPushNotificationResourceResolver.MAX_ENTRIES, "string", lookup);
+        assertEquals(RNPushNotificationResourceResolver.MAX_ENTRIES + 2, lookup.lookups.size());
+    }
+}
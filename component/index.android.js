@@ -9,6 +9,25 @@ var DEVICE_NOTIF_EVENT = 'remoteNotificationReceived';
 var NOTIF_REGISTER_EVENT = 'remoteNotificationsRegistered';
 var NOTIF_ACTION_EVENT = 'notificationActionReceived';
 var REMOTE_FETCH_EVENT = 'remoteFetch';
+var EVENT_BATCH_EVENT = 'notificationEventBatch';
+
+// Batched events are dispatched again one by one, listeners don't need to know about batching
+DeviceEventEmitter.addListener(EVENT_BATCH_EVENT, function(batch) {
+	for (let i = 0; i < batch.length; i++) {
+		DeviceEventEmitter.emit(batch[i].name, batch[i].params);
+	}
+});
+
+// The notification is sent as is with notification_structured_events, as a JSON string otherwise
+function eventData(event) {
+	if (event && event.data) {
+		return event.data;
+	}
+	if (event && event.dataJSON) {
+		return JSON.parse(event.dataJSON);
+	}
+	return null;
+}
 
 let NotificationsComponent = function() {
 
@@ -17,10 +36,7 @@ let NotificationsComponent = function() {
 NotificationsComponent.prototype.getInitialNotification = function () {
     return RNPushNotification.getInitialNotification()
         .then(function (notification) {
-            if (notification && notification.dataJSON) {
-                return JSON.parse(notification.dataJSON);
-            }
-            return null;
+            return eventData(notification);
         });
 };
 
@@ -40,6 +56,10 @@ NotificationsComponent.prototype.cancelLocalNotification = function(details) {
 	RNPushNotification.cancelLocalNotification(details);
 };
 
+NotificationsComponent.prototype.cancelLocalNotificationsWhere = function(filter) {
+	return RNPushNotification.cancelLocalNotificationsWhere(filter);
+};
+
 NotificationsComponent.prototype.clearLocalNotification = function(details, tag) {
 	RNPushNotification.clearLocalNotification(details, tag);
 };
@@ -56,6 +76,10 @@ NotificationsComponent.prototype.scheduleLocalNotification = function(details) {
 	RNPushNotification.scheduleLocalNotification(details);
 };
 
+NotificationsComponent.prototype.scheduleLocalNotifications = function(details) {
+	return RNPushNotification.scheduleLocalNotifications(details);
+};
+
 NotificationsComponent.prototype.setApplicationIconBadgeNumber = function(number) {
        if (!RNPushNotification.setApplicationIconBadgeNumber) {
                return;
@@ -73,8 +97,8 @@ NotificationsComponent.prototype.addEventListener = function(type, handler) {
 		listener =  DeviceEventEmitter.addListener(
 			DEVICE_NOTIF_EVENT,
 			function(notifData) {
-				if (notifData && notifData.dataJSON) {
-					let data = JSON.parse(notifData.dataJSON);
+				let data = eventData(notifData);
+				if (data) {
 					handler(data);
 				}
 			}
@@ -90,8 +114,8 @@ NotificationsComponent.prototype.addEventListener = function(type, handler) {
 		listener = DeviceEventEmitter.addListener(
 			REMOTE_FETCH_EVENT,
 			function(notifData) {
-				if (notifData && notifData.dataJSON) {
-					let notificationData = JSON.parse(notifData.dataJSON)
+				let notificationData = eventData(notifData);
+				if (notificationData) {
 					handler(notificationData);
 				}
 			}
@@ -100,8 +124,8 @@ NotificationsComponent.prototype.addEventListener = function(type, handler) {
 		listener = DeviceEventEmitter.addListener(
 			NOTIF_ACTION_EVENT,
 			function(actionData) {
-				if (actionData && actionData.dataJSON) {
-					var action = JSON.parse(actionData.dataJSON)
+				var action = eventData(actionData);
+				if (action) {
 					handler(action);
 				}
 			}
@@ -138,10 +162,28 @@ NotificationsComponent.prototype.getDeliveredNotifications = function(callback)
 NotificationsComponent.prototype.getScheduledLocalNotifications = function(callback) {
   RNPushNotification.getScheduledLocalNotifications(callback);
 }
+NotificationsComponent.prototype.getScheduledLocalNotificationsInRange = function(from, to) {
+  return RNPushNotification.getScheduledLocalNotificationsInRange(from, to);
+}
+NotificationsComponent.prototype.getScheduledLocalNotificationsPage = function(options) {
+  return RNPushNotification.getScheduledLocalNotificationsPage(options);
+}
 NotificationsComponent.prototype.removeDeliveredNotifications = function(identifiers) {
   RNPushNotification.removeDeliveredNotifications(identifiers);
 }
 
+NotificationsComponent.prototype.setEventBatchLatency = function(latencyMs) {
+	RNPushNotification.setEventBatchLatency(latencyMs);
+}
+
+NotificationsComponent.prototype.getNotificationMetrics = function() {
+	return RNPushNotification.getNotificationMetrics();
+}
+
+NotificationsComponent.prototype.prefetchNotificationImages = function(urls) {
+	return RNPushNotification.prefetchNotificationImages(urls);
+}
+
 NotificationsComponent.prototype.abandonPermissions = function() {
 	RNPushNotification.abandonPermissions();
 }
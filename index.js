@@ -74,6 +74,10 @@ Notifications.configure = function(options) {
     this.onRemoteFetch = options.onRemoteFetch;
   }
 
+  if ( typeof options.eventBatchLatency !== 'undefined' ) {
+    this.setEventBatchLatency(options.eventBatchLatency);
+  }
+
   if ( this.isLoaded === false ) {
     this._onRegister = this._onRegister.bind(this);
     this._onRegistrationError = this._onRegistrationError.bind(this);
@@ -215,6 +219,8 @@ Notifications.localNotification = function({...details}) {
       details.bigPictureUrl = details.picture;
     }
 
+    this._toAndroidRepeatRule(details);
+
     this.handler.presentLocalNotification(details);
   }
 };
@@ -279,42 +285,129 @@ Notifications.localNotificationSchedule = function({...details}) {
 
     this.handler.addNotificationRequest(iosDetails);
   } else {
-    if (details && typeof details.number === 'number') {
-      if (isNaN(details.number)) {
-        console.warn('NaN value has been passed as number');
-        delete details.number;
-      }
-      else {
-        details.number = '' + details.number;
-      }
+    this.handler.scheduleLocalNotification(this._toAndroidScheduledNotification(details));
+  }
+};
+
+/**
+ * Schedules many local notifications at once
+ * @param {Array}    notifications - Array of details, same as localNotificationSchedule
+ * @return {Promise} resolves with one { id, success, error } result per notification, a
+ *                   notification without a valid date fails without failing the others
+ */
+Notifications.localNotificationsSchedule = function(notifications) {
+  const results = new Array(notifications.length);
+  const indexes = [];
+  const valid = [];
+
+  notifications.forEach((details, index) => {
+    const error = this._validateScheduledNotification(details);
+
+    if (error) {
+      console.warn(error);
+      results[index] = { id: details && details.id, success: false, error: error };
+    } else {
+      indexes.push(index);
+      valid.push(details);
     }
+  });
 
-    if (details && typeof details.shortcutId === 'number') {
-      if (isNaN(details.shortcutId)) {
-        console.warn('NaN value has been passed as shortcutId');
-        delete details.shortcutId;
+  if (Platform.OS !== 'android') {
+    valid.forEach((details, i) => {
+      this.localNotificationSchedule(details);
+      results[indexes[i]] = { id: details.id, success: true };
+    });
+
+    return Promise.resolve(results);
+  }
+
+  if (valid.length === 0) {
+    return Promise.resolve(results);
+  }
+
+  const batch = valid.map(({...details}) => {
+    if (typeof details.id === 'number') {
+      if(isNaN(details.id)) {
+        console.warn('NaN value has been passed as id');
+        delete details.id;
       }
       else {
-        details.shortcutId = '' + details.shortcutId;
+        details.id = '' + details.id;
       }
     }
-  
-    if(details && Array.isArray(details.actions)) {
-      details.actions = JSON.stringify(details.actions);
-    }
 
-    if(details.userInfo) {
-      details.userInfo = JSON.stringify(details.userInfo);
+    return this._toAndroidScheduledNotification(details);
+  });
+
+  return this.callNative('scheduleLocalNotifications', [batch]).then((stored) => {
+    stored.forEach((result, i) => {
+      results[indexes[i]] = result;
+    });
+
+    return results;
+  });
+};
+
+/**
+ * Same check as the native side, done first as the date is converted before the batch is sent
+ * @return {String} the error, null if the notification can be scheduled
+ */
+Notifications._validateScheduledNotification = function(details) {
+  if (!details || !(details.date instanceof Date) || isNaN(details.date.getTime())) {
+    return 'No date specified for the scheduled notification';
+  }
+
+  return null;
+};
+
+Notifications._toAndroidScheduledNotification = function(details) {
+  if (details && typeof details.number === 'number') {
+    if (isNaN(details.number)) {
+      console.warn('NaN value has been passed as number');
+      delete details.number;
     }
+    else {
+      details.number = '' + details.number;
+    }
+  }
 
-    if(details.picture && !details.bigPictureUrl) {
-      details.bigPictureUrl = details.picture;
+  if (details && typeof details.shortcutId === 'number') {
+    if (isNaN(details.shortcutId)) {
+      console.warn('NaN value has been passed as shortcutId');
+      delete details.shortcutId;
+    }
+    else {
+      details.shortcutId = '' + details.shortcutId;
     }
+  }
+
+  if(details && Array.isArray(details.actions)) {
+    details.actions = JSON.stringify(details.actions);
+  }
 
-    details.fireDate = details.date.getTime();
-    delete details.date;
+  if(details.userInfo) {
+    details.userInfo = JSON.stringify(details.userInfo);
+  }
 
-    this.handler.scheduleLocalNotification(details);
+  if(details.picture && !details.bigPictureUrl) {
+    details.bigPictureUrl = details.picture;
+  }
+
+  this._toAndroidRepeatRule(details);
+
+  details.fireDate = details.date.getTime();
+  delete details.date;
+
+  return details;
+};
+
+Notifications._toAndroidRepeatRule = function(details) {
+  if (Array.isArray(details.repeatWeekdays)) {
+    details.repeatWeekdays = details.repeatWeekdays.reduce((mask, weekday) => mask | (1 << weekday), 0);
+  }
+
+  if (details.repeatUntil instanceof Date) {
+    details.repeatUntil = details.repeatUntil.getTime();
   }
 };
 
@@ -505,6 +598,25 @@ Notifications.cancelLocalNotification = function(notificationId) {
   }
 };
 
+Notifications.cancelLocalNotificationsWhere = function(filter = {}) {
+  // Only available for Android
+  if (Platform.OS !== 'android') {
+    return Promise.resolve(0);
+  }
+
+  const nativeFilter = Object.assign({}, filter);
+
+  if (nativeFilter.from instanceof Date) {
+    nativeFilter.from = nativeFilter.from.valueOf();
+  }
+
+  if (nativeFilter.to instanceof Date) {
+    nativeFilter.to = nativeFilter.to.valueOf();
+  }
+
+  return this.callNative('cancelLocalNotificationsWhere', [nativeFilter]);
+};
+
 Notifications.clearLocalNotification = function() {
     return this.callNative('clearLocalNotification', arguments);
 };
@@ -537,6 +649,33 @@ Notifications.checkPermissions = function() {
   return this.callNative('checkPermissions', arguments);
 };
 
+Notifications.setEventBatchLatency = function(latencyMs) {
+  // Only available for Android
+  if (Platform.OS !== 'android') {
+    return;
+  }
+
+  return this.callNative('setEventBatchLatency', [latencyMs]);
+};
+
+Notifications.getNotificationMetrics = function() {
+  // Only available for Android
+  if (Platform.OS !== 'android') {
+    return Promise.resolve({});
+  }
+
+  return this.callNative('getNotificationMetrics', arguments);
+}
+
+Notifications.prefetchNotificationImages = function(urls) {
+  // Only available for Android
+  if (Platform.OS !== 'android') {
+    return Promise.resolve({ prefetched: 0, failed: 0 });
+  }
+
+  return this.callNative('prefetchNotificationImages', [urls]);
+}
+
 /* Abandon Permissions */
 Notifications.abandonPermissions = function() {
   return this.callNative('abandonPermissions', arguments);
@@ -572,23 +711,7 @@ Notifications.getScheduledLocalNotifications = function(callback) {
 					})
 				})
 			} else if(Platform.OS === 'android') {
-				mappedNotifications = notifications.map(notif => {
-
-          try {
-            notif.data = JSON.parse(notif.data);
-          } catch(e) { }
-
-					return ({
-						soundName: notif.soundName,
-						repeatInterval: notif.repeatInterval,
-						id: notif.id,
-						date: new Date(notif.date),
-						number: notif.number,
-						message: notif.message,
-						title: notif.title,
-						data: notif.data,
-					})
-				})
+				mappedNotifications = notifications.map(this._transformScheduledNotification);
 			}
 		}
 		callback(mappedNotifications);
@@ -601,6 +724,65 @@ Notifications.getScheduledLocalNotifications = function(callback) {
   }
 }
 
+Notifications._transformScheduledNotification = function(notif) {
+  try {
+    notif.data = JSON.parse(notif.data);
+  } catch(e) { }
+
+  return ({
+    soundName: notif.soundName,
+    repeatInterval: notif.repeatInterval,
+    id: notif.id,
+    date: new Date(notif.date),
+    number: notif.number,
+    message: notif.message,
+    title: notif.title,
+    data: notif.data,
+  })
+}
+
+/**
+ * Scheduled notifications firing between two dates, earliest first
+ * @param {Date|Number} from - Inclusive start date
+ * @param {Date|Number} to - Exclusive end date
+ * @returns {Promise<Object[]>}
+ */
+Notifications.getScheduledLocalNotificationsInRange = function(from, to) {
+  // Only available for Android
+  if (Platform.OS !== 'android') {
+    return Promise.resolve([]);
+  }
+
+  const fromTime = from instanceof Date ? from.valueOf() : from;
+  const toTime = to instanceof Date ? to.valueOf() : to;
+
+  return this.callNative('getScheduledLocalNotificationsInRange', [fromTime, toTime])
+    .then((notifications) => notifications.map(this._transformScheduledNotification));
+}
+
+Notifications.getScheduledLocalNotificationsPage = function(options = {}) {
+  // Only available for Android
+  if (Platform.OS !== 'android') {
+    return Promise.resolve({ notifications: [], cursor: null });
+  }
+
+  const pageOptions = Object.assign({}, options);
+
+  if (pageOptions.from instanceof Date) {
+    pageOptions.from = pageOptions.from.valueOf();
+  }
+
+  if (pageOptions.to instanceof Date) {
+    pageOptions.to = pageOptions.to.valueOf();
+  }
+
+  return this.callNative('getScheduledLocalNotificationsPage', [pageOptions])
+    .then((page) => ({
+      notifications: page.notifications.map(this._transformScheduledNotification),
+      cursor: page.cursor,
+    }));
+}
+
 Notifications.removeDeliveredNotifications = function() {
   return this.callNative('removeDeliveredNotifications', arguments);
 }